@@ -1,65 +1,95 @@
 package io.github.julionxn;
 
+import io.github.julionxn.logging.AsyncLogHandler;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.logging.*;
 
 public class CoreLogger {
 
+    //One logger and async handler per log directory. Launchers that share a name but not a root get their own
+    //logger, a child of the named one, so they never write into each other's logs
+    private static final Map<Path, Logger> LOGGERS = new HashMap<>();
+
     private final Logger logger;
 
     public CoreLogger(LauncherData launcherData){
-        logger = Logger.getLogger(launcherData.launcherName());
-        logger.setUseParentHandlers(false);
-
-        Path logFilePath = launcherData.rootPath()
-                .resolve(launcherData.launcherName())
+        String name = launcherData.launcherName();
+        Path logsPath = launcherData.rootPath()
+                .resolve(name)
                 .resolve("logs")
-                .resolve(System.currentTimeMillis() + ".log");
+                .toAbsolutePath()
+                .normalize();
+        synchronized (LOGGERS) {
+            logger = LOGGERS.computeIfAbsent(logsPath, path -> createLogger(name, path));
+        }
+    }
 
+    private static Logger createLogger(String name, Path logsPath){
+        //Every log directory is <root>/<name>/logs
+        long sameName = LOGGERS.keySet().stream()
+                .filter(existing -> existing.getParent().getFileName().toString().equals(name))
+                .count();
+        Logger logger = Logger.getLogger(sameName == 0 ? name : name + "." + sameName);
+        logger.setUseParentHandlers(false);
+        Path logFilePath = logsPath.resolve(System.currentTimeMillis() + ".log");
         try {
-            Files.createDirectories(logFilePath.getParent());
-            FileHandler fileHandler = new FileHandler(logFilePath.toString(), true) {
-                @Override
-                public synchronized void publish(LogRecord record) {
-                    super.publish(record);
-                    flush();
-                }
-            };
-            Formatter customFormatter = new Formatter() {
-                @Override
-                public String format(LogRecord record) {
-                    return String.format(
-                            "[%1$tF %1$tT] [%2$s] [%3$s] %4$s%n",
-                            record.getMillis(),
-                            record.getLevel().getName(),
-                            record.getLoggerName(),
-                            record.getMessage()
-                    );
-                }
-            };
-            fileHandler.setFormatter(customFormatter);
-            logger.addHandler(fileHandler);
-            ConsoleHandler consoleHandler = new ConsoleHandler();
-            consoleHandler.setLevel(Level.INFO);
-            consoleHandler.setFormatter(customFormatter);
-            logger.addHandler(consoleHandler);
-
+            AsyncLogHandler handler = createHandler(name, logFilePath);
+            logger.addHandler(handler);
+            Runtime.getRuntime().addShutdownHook(new Thread(handler::close, name + "-log-shutdown"));
         } catch (IOException e) {
             System.err.println("Failed to initialize logging: " + logFilePath);
             e.printStackTrace();
         }
+        return logger;
+    }
+
+    private static AsyncLogHandler createHandler(String name, Path logFilePath) throws IOException {
+        Files.createDirectories(logFilePath.getParent());
+        //Flushed by the async handler once per batch, not after every record
+        FileHandler fileHandler = new FileHandler(logFilePath.toString(), true);
+        Formatter customFormatter = new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return String.format(
+                        "[%1$tF %1$tT] [%2$s] [%3$s] %4$s%n",
+                        record.getMillis(),
+                        record.getLevel().getName(),
+                        name,
+                        record.getMessage()
+                );
+            }
+        };
+        fileHandler.setFormatter(customFormatter);
+        ConsoleHandler consoleHandler = new ConsoleHandler();
+        consoleHandler.setLevel(Level.INFO);
+        consoleHandler.setFormatter(customFormatter);
+        return new AsyncLogHandler(name, List.of(fileHandler, consoleHandler));
     }
 
     public void info(String message) {
         logger.info(message);
     }
 
+    //Supplier overloads build the message only when the level is enabled
+    public void info(Supplier<String> message) {
+        logger.info(message);
+    }
+
     public void warning(String message) {
         logger.warning(message);
     }
 
+    public void warning(Supplier<String> message) {
+        logger.warning(message);
+    }
+
     public void error(String message, Throwable throwable) {
         logger.log(Level.SEVERE, message, throwable);
     }
@@ -72,8 +102,26 @@ public class CoreLogger {
         logger.fine(message);
     }
 
+    public void debug(Supplier<String> message) {
+        logger.fine(message);
+    }
+
     public void trace(String message) {
         logger.log(Level.FINER, message);
     }
 
+    public void trace(Supplier<String> message) {
+        logger.log(Level.FINER, message);
+    }
+
+    public boolean isDebugEnabled() {
+        return logger.isLoggable(Level.FINE);
+    }
+
+    public void flush() {
+        for (Handler handler : logger.getHandlers()) {
+            handler.flush();
+        }
+    }
+
 }
@@ -2,6 +2,8 @@ package io.github.julionxn;
 
 import io.github.julionxn.cache.CacheController;
 import io.github.julionxn.data.DataController;
+import io.github.julionxn.instance.ClassDataSharing;
+import io.github.julionxn.instance.LaunchPlanCache;
 import io.github.julionxn.profile.ProfilesController;
 import io.github.julionxn.system.SystemController;
 import io.github.julionxn.version.VersionsController;
@@ -17,6 +19,8 @@ public class Launcher {
     private final DataController dataController;
     private final CacheController cacheController;
     private final VersionsController versionsController;
+    private final LaunchPlanCache launchPlanCache;
+    private final ClassDataSharing classDataSharing;
 
     public Launcher(LauncherData launcherData){
         this.launcherData = launcherData;
@@ -25,12 +29,15 @@ public class Launcher {
         this.systemController = new SystemController(logger, launcherData);
         this.dataController = new DataController(logger, launcherPath.resolve("data"));
         this.profilesController = new ProfilesController(logger, dataController, launcherPath.resolve("profiles"));
-        this.versionsController = new VersionsController(logger, systemController, dataController);
         this.cacheController = new CacheController(logger, launcherPath.resolve("cache"));
+        this.versionsController = new VersionsController(logger, systemController, dataController, cacheController.getMetadataCache());
+        this.launchPlanCache = new LaunchPlanCache(logger, systemController, dataController, launcherData);
+        this.classDataSharing = new ClassDataSharing(logger, dataController);
     }
 
     public void start(){
         this.systemController.initialize();
+        this.dataController.initialize();
         this.profilesController.loadProfiles();
         this.cacheController.initialize();
     }
@@ -59,6 +66,14 @@ public class Launcher {
         return cacheController;
     }
 
+    public LaunchPlanCache getLaunchPlanCache() {
+        return launchPlanCache;
+    }
+
+    public ClassDataSharing getClassDataSharing() {
+        return classDataSharing;
+    }
+
     public CoreLogger getLogger(){
         return logger;
     }
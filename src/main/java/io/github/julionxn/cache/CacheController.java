@@ -5,13 +5,15 @@ import io.github.julionxn.CoreLogger;
 import io.github.julionxn.instance.PlayerInfo;
 import io.github.julionxn.utils.FetchingUtils;
 import io.github.julionxn.utils.FilesUtils;
+import io.github.julionxn.utils.HttpTransport;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URL;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 
@@ -20,12 +22,14 @@ public class CacheController {
     private final CoreLogger logger;
     private final Path cacheFolder;
     private final File userFile;
+    private final MetadataCache metadataCache;
     private @Nullable UserInfo userInfo;
 
     public CacheController(CoreLogger logger, Path cacheFolder){
         this.logger = logger;
         this.cacheFolder = cacheFolder;
         this.userFile = cacheFolder.resolve("user").toFile();
+        this.metadataCache = new MetadataCache(logger, cacheFolder.resolve("metadata"));
     }
 
     public void initialize(){
@@ -88,18 +92,24 @@ public class CacheController {
         return cacheFolder;
     }
 
+    public MetadataCache getMetadataCache(){
+        return metadataCache;
+    }
+
     public Optional<Path> saveHeadImage(String uuid){
         String urlString = "https://mc-heads.net/avatar/" + uuid;
         Path outputFilePath = cacheFolder.resolve("head.png");
-        try (BufferedInputStream in = new BufferedInputStream(new URL(urlString).openStream());
-             FileOutputStream fileOutputStream = new FileOutputStream(outputFilePath.toFile())) {
-            byte[] dataBuffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = in.read(dataBuffer, 0, 1024)) != -1) {
-                fileOutputStream.write(dataBuffer, 0, bytesRead);
+        try {
+            HttpTransport transport = HttpTransport.shared();
+            HttpResponse<byte[]> response = transport.send(transport.request(URI.create(urlString)).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                System.err.println("Failed to save the avatar image: HTTP " + response.statusCode());
+                return Optional.empty();
             }
+            Files.write(outputFilePath, response.body());
             return Optional.of(outputFilePath);
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             System.err.println("Failed to save the avatar image: " + e.getMessage());
             return Optional.empty();
         }
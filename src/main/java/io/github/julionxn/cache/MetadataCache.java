@@ -0,0 +1,198 @@
+package io.github.julionxn.cache;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.github.julionxn.CoreLogger;
+import io.github.julionxn.utils.FetchingUtils;
+import io.github.julionxn.utils.HttpTransport;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+public class MetadataCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    //Mojang serves immutable documents under /v1/packages/<sha1>/, other hashed paths (like the runtimes
+    //manifest) are fixed locations whose content changes, so they still go through revalidation
+    private static final Pattern CONTENT_ADDRESSED_PATH = Pattern.compile("^/v1/packages/[0-9a-f]{40}/");
+
+    private final CoreLogger logger;
+    private final Path metadataFolder;
+    private volatile Duration ttl = DEFAULT_TTL;
+    private volatile boolean offline;
+
+    public MetadataCache(CoreLogger logger, Path metadataFolder){
+        this.logger = logger;
+        this.metadataFolder = metadataFolder;
+    }
+
+    public void setTtl(Duration ttl){
+        this.ttl = ttl;
+    }
+
+    public Duration getTtl(){
+        return ttl;
+    }
+
+    public void setOffline(boolean offline){
+        this.offline = offline;
+    }
+
+    public boolean isOffline(){
+        return offline;
+    }
+
+    public Optional<JsonObject> fetchJson(URL url) throws IOException {
+        return fetchJsonSubtree(url).filter(JsonElement::isJsonObject).map(JsonElement::getAsJsonObject);
+    }
+
+    public Optional<JsonElement> fetchJsonSubtree(URL url, String... path) throws IOException {
+        return fetchParsed(url, inputStream -> FetchingUtils.readJsonSubtree(inputStream, path));
+    }
+
+    public <T> Optional<T> fetchParsed(URL url, FetchingUtils.StreamParser<T> parser) throws IOException {
+        String key = keyOf(url);
+        Path bodyFile = metadataFolder.resolve(key + ".json");
+        Path metaFile = metadataFolder.resolve(key + ".meta.json");
+        Optional<CachedEntry> cachedOpt = readEntry(metaFile, bodyFile);
+        if (offline) {
+            if (cachedOpt.isEmpty()) {
+                logger.error("Offline mode: no cached metadata for " + url + ".");
+                return Optional.empty();
+            }
+            return readBody(bodyFile, parser);
+        }
+        if (cachedOpt.isPresent()) {
+            CachedEntry cached = cachedOpt.get();
+            if (isContentAddressed(url)) return readBody(bodyFile, parser);
+            if (System.currentTimeMillis() - cached.fetchedAt() < ttl.toMillis()) return readBody(bodyFile, parser);
+        }
+        boolean available;
+        try {
+            available = revalidate(url, bodyFile, metaFile, cachedOpt.orElse(null));
+        } catch (IOException e) {
+            //A stale document beats no document when the endpoint is unreachable
+            if (cachedOpt.isEmpty()) throw e;
+            logger.warning("Using stale cached metadata for " + url + ": " + e.getMessage());
+            available = true;
+        }
+        return available ? readBody(bodyFile, parser) : Optional.empty();
+    }
+
+    private boolean revalidate(URL url, Path bodyFile, Path metaFile, @Nullable CachedEntry cached) throws IOException {
+        HttpTransport transport = HttpTransport.shared();
+        HttpRequest.Builder request = transport.compressedRequest(url);
+        if (cached != null) {
+            if (cached.etag() != null) request.header("If-None-Match", cached.etag());
+            if (cached.lastModified() != null) request.header("If-Modified-Since", cached.lastModified());
+        }
+        HttpResponse<InputStream> response = transport.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            response.body().close();
+            writeMeta(metaFile, url, cached.etag(), cached.lastModified());
+            return true;
+        }
+        if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+            response.body().close();
+            if (cached != null) {
+                logger.warning("Using stale cached metadata for " + url + ", HTTP " + response.statusCode() + ".");
+                return true;
+            }
+            return false;
+        }
+        //The body goes straight from the decompressing stream to disk, it is parsed from there
+        Files.createDirectories(metadataFolder);
+        Path tempFile = Files.createTempFile(metadataFolder, bodyFile.getFileName().toString(), ".tmp");
+        try (InputStream inputStream = HttpTransport.decodedBody(response)) {
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            moveAtomically(tempFile, bodyFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        writeMeta(metaFile, url,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+        return true;
+    }
+
+    private <T> Optional<T> readBody(Path bodyFile, FetchingUtils.StreamParser<T> parser) throws IOException {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(bodyFile))) {
+            return parser.parse(inputStream);
+        } catch (IOException e) {
+            logger.error("Discarding unreadable cached metadata " + bodyFile + ".", e);
+            Files.deleteIfExists(bodyFile);
+            throw e;
+        }
+    }
+
+    private Optional<CachedEntry> readEntry(Path metaFile, Path bodyFile){
+        if (!Files.exists(metaFile) || !Files.exists(bodyFile)) return Optional.empty();
+        try {
+            JsonObject meta = JsonParser.parseString(Files.readString(metaFile)).getAsJsonObject();
+            return Optional.of(new CachedEntry(
+                    meta.has("etag") ? meta.get("etag").getAsString() : null,
+                    meta.has("lastModified") ? meta.get("lastModified").getAsString() : null,
+                    meta.get("fetchedAt").getAsLong()));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Discarding unreadable cached metadata " + metaFile + ".", e);
+            return Optional.empty();
+        }
+    }
+
+    private void writeMeta(Path metaFile, URL url, @Nullable String etag, @Nullable String lastModified) throws IOException {
+        JsonObject meta = new JsonObject();
+        meta.addProperty("url", url.toString());
+        if (etag != null) meta.addProperty("etag", etag);
+        if (lastModified != null) meta.addProperty("lastModified", lastModified);
+        meta.addProperty("fetchedAt", System.currentTimeMillis());
+        writeAtomically(metaFile, meta.toString());
+    }
+
+    private void writeAtomically(Path file, String content) throws IOException {
+        Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        Files.writeString(tempFile, content);
+        moveAtomically(tempFile, file);
+    }
+
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private boolean isContentAddressed(URL url){
+        return CONTENT_ADDRESSED_PATH.matcher(url.getPath()).find();
+    }
+
+    private String keyOf(URL url){
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(digest.digest(url.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available.", e);
+        }
+    }
+
+    private record CachedEntry(@Nullable String etag, @Nullable String lastModified, long fetchedAt) {}
+
+}
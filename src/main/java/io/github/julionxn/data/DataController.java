@@ -5,27 +5,64 @@ import io.github.julionxn.utils.FilesUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HexFormat;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataController {
 
     private final CoreLogger logger;
+    private final Path dataPath;
     private final Path assetsPath;
     private final Path librariesPath;
     private final Path versionsPath;
     private final Path nativesPath;
     private final Path runtimesPath;
     private final Path tempPath;
+    private final Path[] objectShards;
+    //Directories known to exist, so per-file preparation doesn't stat or mkdir again
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+    private IntegrityIndex integrityIndex;
 
     public DataController(CoreLogger logger, Path dataPath) {
         this.logger = logger;
+        this.dataPath = dataPath;
         this.assetsPath = dataPath.resolve("assets");
         this.librariesPath = dataPath.resolve("libraries");
         this.versionsPath = dataPath.resolve("versions");
         this.nativesPath = dataPath.resolve("natives");
         this.runtimesPath = dataPath.resolve("runtimes");
         this.tempPath = dataPath.resolve("temp");
+        Path objectsPath = assetsPath.resolve("objects");
+        this.objectShards = new Path[256];
+        for (int i = 0; i < objectShards.length; i++) {
+            objectShards[i] = objectsPath.resolve(HexFormat.of().toHexDigits((byte) i));
+        }
+    }
+
+    //Creates the 256 asset object shards up front, the download path then never touches the directory tree
+    public void initialize() {
+        for (Path shard : objectShards) {
+            if (!ensureDirectory(shard)) {
+                logger.error("Failed to prepare Asset Objects shard " + shard + ".");
+                return;
+            }
+        }
+        logger.info("Asset Objects store ready.");
+    }
+
+    public Path getDataPath() {
+        return dataPath;
+    }
+
+    public synchronized IntegrityIndex getIntegrityIndex() {
+        if (integrityIndex == null) {
+            integrityIndex = IntegrityIndex.load(logger, dataPath.resolve("integrity-index.json"));
+        }
+        return integrityIndex;
     }
 
     public Path getNativesPath() {
@@ -49,15 +86,12 @@ public class DataController {
     }
 
     public Optional<File> prepareAssetObjectFile(String hash) {
-        String folderName = hash.substring(0, 2);
-        File folderFile = assetsPath.resolve("objects").resolve(folderName).toFile();
-        if (!folderFile.exists() && !folderFile.mkdir()) {
+        Path shard = objectShards[HexFormat.fromHexDigits(hash, 0, 2)];
+        if (!ensureDirectory(shard)) {
             logger.error("Failed to prepare Asset Object File " + hash + ".");
             return Optional.empty();
         }
-        File objectFile = folderFile.toPath().resolve(hash).toFile();
-        logger.info("Preparing Asset Object File " + hash + ".");
-        return Optional.of(objectFile);
+        return Optional.of(shard.resolve(hash).toFile());
     }
 
     public Optional<File> prepareAssetIndexFile(String id) {
@@ -68,14 +102,25 @@ public class DataController {
     }
 
     public Optional<File> prepareLibraryFile(String path) {
-        File libraryFile = librariesPath.resolve(path).toFile();
-        File parentDir = libraryFile.getParentFile();
-        if (!parentDir.exists() && !parentDir.mkdirs()) {
+        Path libraryFile = librariesPath.resolve(path);
+        if (!ensureDirectory(libraryFile.getParent())) {
             logger.error("Failed to prepare Library File " + path + ".");
             return Optional.empty();
         }
-        logger.info("Preparing Library File " + path + ".");
-        return Optional.of(libraryFile);
+        return Optional.of(libraryFile.toFile());
+    }
+
+    private boolean ensureDirectory(Path directory) {
+        if (createdDirectories.contains(directory)) return true;
+        try {
+            //createDirectories tolerates a concurrent creator, unlike exists() followed by mkdirs()
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            logger.error("Failed to create directory " + directory + ".", e);
+            return false;
+        }
+        createdDirectories.add(directory);
+        return true;
     }
 
     public Optional<Path> prepareNativesFolder(String version) {
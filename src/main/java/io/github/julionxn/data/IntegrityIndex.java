@@ -0,0 +1,143 @@
+package io.github.julionxn.data;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.github.julionxn.CoreLogger;
+import io.github.julionxn.utils.FetchingUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class IntegrityIndex {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final CoreLogger logger;
+    private final Path indexFile;
+    private final Path basePath;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private IntegrityIndex(CoreLogger logger, Path indexFile){
+        this.logger = logger;
+        this.indexFile = indexFile;
+        this.basePath = indexFile.toAbsolutePath().getParent();
+    }
+
+    public static IntegrityIndex load(CoreLogger logger, Path indexFile){
+        IntegrityIndex index = new IntegrityIndex(logger, indexFile);
+        if (!Files.exists(indexFile)) return index;
+        try {
+            JsonObject data = FetchingUtils.loadJson(indexFile);
+            if (data == null || data.get("version").getAsInt() != FORMAT_VERSION) return index;
+            for (Map.Entry<String, JsonElement> entry : data.getAsJsonObject("entries").entrySet()) {
+                JsonObject value = entry.getValue().getAsJsonObject();
+                JsonElement key = value.get("key");
+                index.entries.put(entry.getKey(), new Entry(
+                        value.get("size").getAsLong(),
+                        value.get("modified").getAsLong(),
+                        key == null || key.isJsonNull() ? null : key.getAsString(),
+                        value.get("sha1").getAsString()));
+            }
+            logger.info("Integrity index loaded with " + index.entries.size() + " entries.");
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error loading integrity index " + indexFile + ", starting empty.", e);
+            index.entries.clear();
+        }
+        return index;
+    }
+
+    public boolean isVerified(Path file, String sha1){
+        Entry entry = entries.get(keyOf(file));
+        if (entry == null || !entry.sha1().equals(sha1)) return false;
+        try {
+            return entry.matches(Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void record(Path file, String sha1){
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            entries.put(keyOf(file), Entry.of(attributes, sha1));
+            dirty.set(true);
+        } catch (NoSuchFileException e) {
+            invalidate(file);
+        } catch (IOException e) {
+            logger.error("Error reading attributes of " + file + ".", e);
+        }
+    }
+
+    public void invalidate(Path file){
+        if (entries.remove(keyOf(file)) != null) {
+            dirty.set(true);
+        }
+    }
+
+    public synchronized void save(){
+        if (!dirty.getAndSet(false)) return;
+        JsonObject entriesJson = new JsonObject();
+        entries.forEach((path, entry) -> {
+            JsonObject value = new JsonObject();
+            value.addProperty("size", entry.size());
+            value.addProperty("modified", entry.modified());
+            value.addProperty("key", entry.fileKey());
+            value.addProperty("sha1", entry.sha1());
+            entriesJson.add(path, value);
+        });
+        JsonObject data = new JsonObject();
+        data.addProperty("version", FORMAT_VERSION);
+        data.add("entries", entriesJson);
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            Files.writeString(tempFile, data.toString());
+            try {
+                Files.move(tempFile, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.error("Error saving integrity index " + indexFile + ".", e);
+        }
+    }
+
+    private String keyOf(Path file){
+        Path absolute = file.toAbsolutePath().normalize();
+        Path key = absolute.startsWith(basePath) ? basePath.relativize(absolute) : absolute;
+        return key.toString().replace('\\', '/');
+    }
+
+    private record Entry(long size, long modified, @Nullable String fileKey, String sha1) {
+
+        private static Entry of(BasicFileAttributes attributes, String sha1){
+            Object fileKey = attributes.fileKey();
+            return new Entry(attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS),
+                    fileKey == null ? null : fileKey.toString(),
+                    sha1);
+        }
+
+        private boolean matches(BasicFileAttributes attributes){
+            Object currentKey = attributes.fileKey();
+            return attributes.isRegularFile()
+                    && size == attributes.size()
+                    && modified == attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS)
+                    && Objects.equals(fileKey, currentKey == null ? null : currentKey.toString());
+        }
+
+    }
+
+}
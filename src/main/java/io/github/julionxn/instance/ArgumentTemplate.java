@@ -0,0 +1,123 @@
+package io.github.julionxn.instance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+//One argument split into literal text and variables, parsed once. literals always has one more element
+//than variables: literals[0] variables[0] literals[1] ... literals[n]
+public final class ArgumentTemplate {
+
+    private final String[] literals;
+    private final LaunchVariable[] variables;
+
+    private ArgumentTemplate(String[] literals, LaunchVariable[] variables){
+        this.literals = literals;
+        this.variables = variables;
+    }
+
+    public static ArgumentTemplate parse(String argument){
+        List<String> literals = new ArrayList<>();
+        List<LaunchVariable> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < argument.length()) {
+            int start = argument.indexOf("${", position);
+            if (start < 0) break;
+            int end = argument.indexOf('}', start + 2);
+            if (end < 0) break;
+            LaunchVariable variable = LaunchVariable.byName(argument.substring(start + 2, end));
+            //Unknown placeholders are passed through untouched
+            literal.append(argument, position, variable == null ? end + 1 : start);
+            position = end + 1;
+            if (variable == null) continue;
+            literals.add(literal.toString());
+            literal.setLength(0);
+            variables.add(variable);
+        }
+        literal.append(argument, position, argument.length());
+        literals.add(literal.toString());
+        return new ArgumentTemplate(literals.toArray(String[]::new), variables.toArray(LaunchVariable[]::new));
+    }
+
+    public static List<ArgumentTemplate> parseAll(List<String> arguments){
+        List<ArgumentTemplate> templates = new ArrayList<>(arguments.size());
+        for (String argument : arguments) {
+            templates.add(parse(argument));
+        }
+        return List.copyOf(templates);
+    }
+
+    public boolean isConstant(){
+        return variables.length == 0;
+    }
+
+    public boolean uses(LaunchVariable variable){
+        for (LaunchVariable used : variables) {
+            if (used == variable) return true;
+        }
+        return false;
+    }
+
+    //Turns the given variables into literal text, the rest stay variables
+    public ArgumentTemplate bind(Map<LaunchVariable, String> values){
+        if (isConstant()) return this;
+        List<String> boundLiterals = new ArrayList<>();
+        List<LaunchVariable> boundVariables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            String value = values.get(variables[i]);
+            if (value != null) {
+                literal.append(value);
+            } else {
+                boundLiterals.add(literal.toString());
+                literal.setLength(0);
+                boundVariables.add(variables[i]);
+            }
+            literal.append(literals[i + 1]);
+        }
+        boundLiterals.add(literal.toString());
+        return new ArgumentTemplate(boundLiterals.toArray(String[]::new), boundVariables.toArray(LaunchVariable[]::new));
+    }
+
+    public String resolve(LaunchContext context){
+        if (isConstant()) return literals[0];
+        StringBuilder builder = new StringBuilder(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            String value = context.get(variables[i]);
+            builder.append(value != null ? value : variables[i].getPlaceholder());
+            builder.append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    public static void resolveAll(List<ArgumentTemplate> templates, LaunchContext context, List<String> argv){
+        for (ArgumentTemplate template : templates) {
+            argv.add(template.resolve(context));
+        }
+    }
+
+    //The argument with its remaining placeholders, as it is persisted in the launch plan
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            builder.append(variables[i].getPlaceholder()).append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ArgumentTemplate template
+                && Arrays.equals(literals, template.literals)
+                && Arrays.equals(variables, template.variables);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(literals) + Arrays.hashCode(variables);
+    }
+
+}
@@ -0,0 +1,143 @@
+package io.github.julionxn.instance;
+
+import io.github.julionxn.CoreLogger;
+import io.github.julionxn.data.DataController;
+import io.github.julionxn.version.MinecraftVersion;
+import io.github.julionxn.version.loaders.Loader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+//Dynamic AppCDS archives per (version, loader, runtime). The first launch records the loaded classes at exit,
+//later launches map the archive. The file name carries a hash of the runtime, the JVM arguments and the size and
+//modification time of every classpath entry, so any change to them (a jar downloaded again included) records a new archive
+public class ClassDataSharing {
+
+    private static final Duration RECORDING_GRACE_PERIOD = Duration.ofMinutes(10);
+
+    private final CoreLogger logger;
+    private final Path archivesPath;
+
+    public ClassDataSharing(CoreLogger logger, DataController dataController){
+        this.logger = logger;
+        this.archivesPath = dataController.getDataPath().resolve("cds");
+    }
+
+    //Adds the archive options for the given JVM arguments to archiveArguments, returns the recording to complete when this is a recording launch.
+    //They are kept apart from the JVM arguments so the per-launch recording file never ends up in a shared argfile
+    public Optional<Recording> apply(MinecraftVersion minecraftVersion, LaunchPlan plan, JavaRuntime runtime, List<String> jvmArguments, List<String> archiveArguments){
+        String combination = getCombination(minecraftVersion, runtime);
+        String key = computeKey(plan, runtime, jvmArguments);
+        Path archiveFile = archivesPath.resolve(combination + "-" + key + ".jsa");
+        if (Files.exists(archiveFile)) {
+            archiveArguments.add("-XX:SharedArchiveFile=" + archiveFile);
+            return Optional.empty();
+        }
+        try {
+            Files.createDirectories(archivesPath);
+            deleteStaleRecordings(combination);
+        } catch (IOException e) {
+            logger.error("Error preparing class data sharing folder " + archivesPath + ".", e);
+            return Optional.empty();
+        }
+        //Recorded under a unique name, two first launches at once must not write the same file
+        Path recordingFile = archivesPath.resolve(combination + "-" + key + "." + System.nanoTime() + ".recording");
+        archiveArguments.add("-XX:ArchiveClassesAtExit=" + recordingFile);
+        logger.info("Recording class data sharing archive " + archiveFile.getFileName() + ".");
+        return Optional.of(new Recording(recordingFile, archiveFile, combination));
+    }
+
+    //Keeps the archive only when the game exited cleanly, and drops the ones it replaces
+    public void complete(Recording recording, int exitCode){
+        try {
+            if (exitCode != 0 || !Files.exists(recording.recordingFile()) || Files.size(recording.recordingFile()) == 0) {
+                logger.warning("Discarding class data sharing recording " + recording.recordingFile().getFileName() + ", exit code " + exitCode + ".");
+                Files.deleteIfExists(recording.recordingFile());
+                return;
+            }
+            //When two first launches race, the last one to exit wins, both archives are equivalent
+            try {
+                Files.move(recording.recordingFile(), recording.archiveFile(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(recording.recordingFile(), recording.archiveFile(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            deleteStaleArchives(recording);
+            deleteStaleRecordings(recording.combination());
+            logger.info("Class data sharing archive " + recording.archiveFile().getFileName() + " ready.");
+        } catch (IOException e) {
+            logger.error("Error storing class data sharing archive " + recording.archiveFile() + ".", e);
+        }
+    }
+
+    private void deleteStaleArchives(Recording recording) throws IOException {
+        try (DirectoryStream<Path> archives = Files.newDirectoryStream(archivesPath, recording.combination() + "-*.jsa")) {
+            for (Path archive : archives) {
+                if (!archive.equals(recording.archiveFile())) Files.deleteIfExists(archive);
+            }
+        }
+    }
+
+    //Recordings left behind by a game or launcher that died before complete(). The JVM only writes the file while exiting,
+    //so anything older than the grace period belongs to no running launch
+    private void deleteStaleRecordings(String combination) throws IOException {
+        FileTime threshold = FileTime.from(Instant.now().minus(RECORDING_GRACE_PERIOD));
+        try (DirectoryStream<Path> recordings = Files.newDirectoryStream(archivesPath, combination + "-*.recording")) {
+            for (Path recording : recordings) {
+                try {
+                    if (Files.getLastModifiedTime(recording).compareTo(threshold) < 0) Files.deleteIfExists(recording);
+                } catch (NoSuchFileException ignored) {
+                    //Completed or discarded by its own launch meanwhile
+                }
+            }
+        }
+    }
+
+    private String getCombination(MinecraftVersion minecraftVersion, JavaRuntime runtime){
+        Loader loader = minecraftVersion.getLoader();
+        String loaderKey = loader == null ? "vanilla" : loader.getId() + "-" + loader.getVersion();
+        return minecraftVersion.getVersion() + "-" + loaderKey + "-" + runtime.home().getFileName();
+    }
+
+    private String computeKey(LaunchPlan plan, JavaRuntime runtime, List<String> jvmArguments){
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available.", e);
+        }
+        digest.update(plan.sourceHash().getBytes(StandardCharsets.UTF_8));
+        digest.update(runtime.home().toString().getBytes(StandardCharsets.UTF_8));
+        digest.update(runtime.release().getBytes(StandardCharsets.UTF_8));
+        for (String argument : jvmArguments) {
+            digest.update(argument.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        //The JVM refuses an archive whose jars changed size or mtime, even at the same path
+        ByteBuffer stamp = ByteBuffer.allocate(2 * Long.BYTES);
+        for (String entry : plan.classpath()) {
+            stamp.clear();
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(Path.of(entry), BasicFileAttributes.class);
+                stamp.putLong(attributes.size()).putLong(attributes.lastModifiedTime().toMillis());
+            } catch (IOException | InvalidPathException e) {
+                stamp.putLong(-1).putLong(-1);
+            }
+            digest.update(stamp.array());
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 8);
+    }
+
+    public record Recording(Path recordingFile, Path archiveFile, String combination) {}
+
+}
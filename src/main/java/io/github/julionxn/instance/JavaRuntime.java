@@ -0,0 +1,48 @@
+package io.github.julionxn.instance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+//A runtime as described by the release file at its root
+public record JavaRuntime(Path home, String version, int featureVersion, String release) {
+
+    public static Optional<JavaRuntime> read(Path home){
+        Path releaseFile = home.resolve("release");
+        if (!Files.exists(releaseFile)) return Optional.empty();
+        try {
+            String release = Files.readString(releaseFile);
+            for (String line : release.split("\\R")) {
+                if (!line.startsWith("JAVA_VERSION=")) continue;
+                String version = line.substring("JAVA_VERSION=".length()).replace("\"", "").trim();
+                return parseFeatureVersion(version).map(feature -> new JavaRuntime(home, version, feature, release));
+            }
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        return Optional.empty();
+    }
+
+    //1.8.0_74 is Java 8, 17.0.8 is Java 17
+    private static Optional<Integer> parseFeatureVersion(String version){
+        String[] parts = version.split("[._+-]");
+        try {
+            int first = Integer.parseInt(parts[0]);
+            if (first == 1 && parts.length > 1) return Optional.of(Integer.parseInt(parts[1]));
+            return Optional.of(first);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    public boolean supportsArgFiles(){
+        return featureVersion >= 9;
+    }
+
+    //-XX:ArchiveClassesAtExit arrived in Java 13
+    public boolean supportsDynamicArchives(){
+        return featureVersion >= 13;
+    }
+
+}
@@ -0,0 +1,131 @@
+package io.github.julionxn.instance;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+//Heap and GC flags for a tuning profile, sized from the host and split between the instances expected to run at once
+public final class JvmTuning {
+
+    private static final long MB = 1024L * 1024;
+    private static final long GB = 1024 * MB;
+    //Used when the host doesn't report its memory
+    private static final long FALLBACK_MEMORY = 8 * GB;
+    private static final String GC_KEY = "gc";
+    private static final Pattern GC_SELECTOR = Pattern.compile("Use(Serial|Parallel|ParallelOld|ConcMarkSweep|G1|Z|Shenandoah|Epsilon)GC");
+    private static final Map<String, String> OPTION_ALIASES = Map.of(
+            "-XX:MaxHeapSize", "-Xmx",
+            "-XX:InitialHeapSize", "-Xms",
+            "-XX:ThreadStackSize", "-Xss",
+            "-XX:NewSize", "-Xmn");
+    private static final List<String> SIZE_OPTIONS = List.of("-Xmx", "-Xms", "-Xss", "-Xmn");
+
+    private JvmTuning(){}
+
+    public static List<String> getArguments(JvmTuningProfile profile, long totalMemory, int processors, int expectedInstances, int runtimeVersion){
+        if (profile == JvmTuningProfile.NONE) return List.of();
+        int instances = Math.max(1, expectedInstances);
+        long memory = totalMemory > 0 ? totalMemory : FALLBACK_MEMORY;
+        //The OS and the launcher keep a fifth, at least 1 GB, the instances share the rest
+        long reserved = Math.max(GB, memory / 5);
+        long perInstance = Math.max(0, memory - reserved) / instances;
+        int threads = Math.max(1, Math.max(1, processors) / instances);
+        List<String> arguments = new ArrayList<>();
+        switch (profile) {
+            case LOW_LATENCY -> {
+                long heap = sizeHeap(perInstance * 7 / 10, 2 * GB, 8 * GB, perInstance);
+                //A fixed heap avoids resizing pauses
+                arguments.add("-Xms" + toMegabytes(heap));
+                arguments.add("-Xmx" + toMegabytes(heap));
+                if (runtimeVersion >= 21) {
+                    arguments.add("-XX:+UseZGC");
+                    arguments.add("-XX:+ZGenerational");
+                } else if (runtimeVersion >= 15) {
+                    arguments.add("-XX:+UseZGC");
+                } else {
+                    arguments.add("-XX:+UseG1GC");
+                    arguments.add("-XX:MaxGCPauseMillis=50");
+                }
+                arguments.add("-XX:ParallelGCThreads=" + threads);
+                arguments.add("-XX:ConcGCThreads=" + Math.max(1, threads / 4));
+            }
+            case THROUGHPUT -> {
+                long heap = sizeHeap(perInstance * 6 / 10, 2 * GB, 12 * GB, perInstance);
+                arguments.add("-Xms" + toMegabytes(heap / 2));
+                arguments.add("-Xmx" + toMegabytes(heap));
+                arguments.add("-XX:+UseG1GC");
+                arguments.add("-XX:MaxGCPauseMillis=200");
+                arguments.add("-XX:ParallelGCThreads=" + threads);
+                arguments.add("-XX:ConcGCThreads=" + Math.max(1, threads / 4));
+            }
+            case LOW_MEMORY -> {
+                long heap = sizeHeap(perInstance * 4 / 10, GB, 2 * GB, perInstance);
+                arguments.add("-Xms" + toMegabytes(Math.min(512 * MB, heap)));
+                arguments.add("-Xmx" + toMegabytes(heap));
+                arguments.add("-XX:+UseG1GC");
+                //Shrinks the heap back after load spikes
+                arguments.add("-XX:MinHeapFreeRatio=10");
+                arguments.add("-XX:MaxHeapFreeRatio=30");
+                arguments.add("-XX:+UseStringDeduplication");
+                arguments.add("-XX:ParallelGCThreads=" + Math.min(threads, 2));
+                arguments.add("-XX:ConcGCThreads=1");
+            }
+        }
+        return arguments;
+    }
+
+    //Manifest and loader arguments win: a tuning flag is dropped when they already set the same option, every
+    //GC flag of the profile (threads and deduplication included) when they pick the collector, and both heap
+    //bounds when they set either
+    public static List<String> merge(List<String> base, List<String> tuning){
+        Set<String> baseKeys = new HashSet<>();
+        for (String argument : base) {
+            baseKeys.add(getOptionKey(argument));
+        }
+        boolean baseSelectsCollector = baseKeys.contains(GC_KEY);
+        boolean baseSizesHeap = baseKeys.contains("-Xmx") || baseKeys.contains("-Xms");
+        Set<String> tuningKeys = new HashSet<>();
+        List<String> merged = new ArrayList<>(tuning.size() + base.size());
+        for (String argument : tuning) {
+            String key = getOptionKey(argument);
+            if (baseKeys.contains(key) || !tuningKeys.add(key)) continue;
+            //Besides the sizes every profile flag tunes its own collector
+            if (baseSelectsCollector && !SIZE_OPTIONS.contains(key)) continue;
+            if (baseSizesHeap && (key.equals("-Xmx") || key.equals("-Xms"))) continue;
+            merged.add(argument);
+        }
+        merged.addAll(base);
+        return merged;
+    }
+
+    //-XX:+UseG1GC and -XX:-UseZGC share the "gc" key, -Xmx2G and -XX:MaxHeapSize=4G share -Xmx, -Dname=value is keyed by name
+    static String getOptionKey(String argument){
+        if (argument.startsWith("-XX:")) {
+            String option = argument.substring(4);
+            if (option.startsWith("+") || option.startsWith("-")) option = option.substring(1);
+            int equals = option.indexOf('=');
+            if (equals >= 0) option = option.substring(0, equals);
+            if (GC_SELECTOR.matcher(option).matches()) return GC_KEY;
+            String key = "-XX:" + option;
+            return OPTION_ALIASES.getOrDefault(key, key);
+        }
+        for (String sizeOption : SIZE_OPTIONS) {
+            if (argument.startsWith(sizeOption)) return sizeOption;
+        }
+        if (argument.startsWith("-D")) {
+            int equals = argument.indexOf('=');
+            return equals < 0 ? argument : argument.substring(0, equals);
+        }
+        return argument;
+    }
+
+    private static long sizeHeap(long target, long min, long max, long available){
+        long heap = Math.max(min, Math.min(max, target));
+        //A host too small for the profile minimum still gets a heap that fits
+        return Math.min(heap, Math.max(512 * MB, available * 9 / 10));
+    }
+
+    private static String toMegabytes(long bytes){
+        return (bytes / MB) + "M";
+    }
+
+}
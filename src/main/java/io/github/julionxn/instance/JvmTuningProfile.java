@@ -0,0 +1,12 @@
+package io.github.julionxn.instance;
+
+public enum JvmTuningProfile {
+    //JVM defaults, no tuning flags are added
+    NONE,
+    //Generational ZGC where the runtime has it, short pauses over footprint
+    LOW_LATENCY,
+    //G1 with a larger heap and pause goal, fewer collections overall
+    THROUGHPUT,
+    //Small heap that gives memory back, for low-end hosts or many instances
+    LOW_MEMORY
+}
@@ -0,0 +1,24 @@
+package io.github.julionxn.instance;
+
+import org.jetbrains.annotations.Nullable;
+
+//Values that change from one launch to the next
+public record LaunchContext(String classpath, String playerName, String uuid, String accessToken, String userType,
+                            String userProperties, String gameDirectory, String resolutionWidth, String resolutionHeight) {
+
+    public @Nullable String get(LaunchVariable variable){
+        return switch (variable) {
+            case CLASSPATH -> classpath;
+            case AUTH_PLAYER_NAME -> playerName;
+            case AUTH_UUID -> uuid;
+            case AUTH_ACCESS_TOKEN, AUTH_SESSION -> accessToken;
+            case USER_TYPE -> userType;
+            case USER_PROPERTIES -> userProperties;
+            case GAME_DIRECTORY -> gameDirectory;
+            case RESOLUTION_WIDTH -> resolutionWidth;
+            case RESOLUTION_HEIGHT -> resolutionHeight;
+            default -> null;
+        };
+    }
+
+}
@@ -0,0 +1,76 @@
+package io.github.julionxn.instance;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Everything a launch needs from the version json and the loader, resolved for one OS. Only LAUNCH scoped
+//variables are left in the argument templates
+public record LaunchPlan(String sourceHash, String javaPath, List<ArgumentTemplate> jvmArguments, String mainClass,
+                         List<ArgumentTemplate> gameArguments, Map<String, List<ArgumentTemplate>> featureArguments, List<String> classpath) {
+
+    public static final int FORMAT_VERSION = 1;
+
+    public List<ArgumentTemplate> getFeatureArguments(String feature){
+        return featureArguments.getOrDefault(feature, List.of());
+    }
+
+    public JsonObject toJson(){
+        JsonObject json = new JsonObject();
+        json.addProperty("version", FORMAT_VERSION);
+        json.addProperty("sourceHash", sourceHash);
+        json.addProperty("javaPath", javaPath);
+        json.add("jvmArguments", toTemplateArray(jvmArguments));
+        json.addProperty("mainClass", mainClass);
+        json.add("gameArguments", toTemplateArray(gameArguments));
+        JsonObject features = new JsonObject();
+        featureArguments.forEach((feature, arguments) -> features.add(feature, toTemplateArray(arguments)));
+        json.add("featureArguments", features);
+        json.add("classpath", toArray(classpath));
+        return json;
+    }
+
+    public static LaunchPlan fromJson(JsonObject json){
+        if (json.get("version").getAsInt() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported launch plan format " + json.get("version") + ".");
+        }
+        Map<String, List<ArgumentTemplate>> features = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> feature : json.getAsJsonObject("featureArguments").entrySet()) {
+            features.put(feature.getKey(), ArgumentTemplate.parseAll(fromArray(feature.getValue().getAsJsonArray())));
+        }
+        return new LaunchPlan(
+                json.get("sourceHash").getAsString(),
+                json.get("javaPath").getAsString(),
+                ArgumentTemplate.parseAll(fromArray(json.getAsJsonArray("jvmArguments"))),
+                json.get("mainClass").getAsString(),
+                ArgumentTemplate.parseAll(fromArray(json.getAsJsonArray("gameArguments"))),
+                Map.copyOf(features),
+                fromArray(json.getAsJsonArray("classpath")));
+    }
+
+    private static JsonArray toArray(List<String> values){
+        JsonArray array = new JsonArray(values.size());
+        values.forEach(array::add);
+        return array;
+    }
+
+    private static JsonArray toTemplateArray(List<ArgumentTemplate> templates){
+        JsonArray array = new JsonArray(templates.size());
+        templates.forEach(template -> array.add(template.toString()));
+        return array;
+    }
+
+    private static List<String> fromArray(JsonArray array){
+        List<String> values = new ArrayList<>(array.size());
+        for (JsonElement element : array) {
+            values.add(element.getAsString());
+        }
+        return List.copyOf(values);
+    }
+
+}
@@ -0,0 +1,209 @@
+package io.github.julionxn.instance;
+
+import io.github.julionxn.CoreLogger;
+import io.github.julionxn.LauncherData;
+import io.github.julionxn.data.DataController;
+import io.github.julionxn.system.SystemController;
+import io.github.julionxn.utils.FetchingUtils;
+import io.github.julionxn.version.MinecraftVersion;
+import io.github.julionxn.version.loaders.Loader;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Launch plans per (version, loader, OS), kept in memory and next to the version json. A plan is reused
+//while the hash of everything it was compiled from still matches
+public class LaunchPlanCache {
+
+    private static final Duration ARG_FILE_GRACE_PERIOD = Duration.ofMinutes(1);
+
+    private final CoreLogger logger;
+    private final SystemController systemController;
+    private final DataController dataController;
+    private final LauncherData launcherData;
+    private final LaunchPlanCompiler compiler;
+    private final Map<Path, LaunchPlan> plans = new ConcurrentHashMap<>();
+
+    public LaunchPlanCache(CoreLogger logger, SystemController systemController, DataController dataController, LauncherData launcherData){
+        this.logger = logger;
+        this.systemController = systemController;
+        this.dataController = dataController;
+        this.launcherData = launcherData;
+        this.compiler = new LaunchPlanCompiler(systemController, dataController, launcherData);
+    }
+
+    public LaunchPlan getPlan(MinecraftVersion minecraftVersion){
+        Path planFile = getPlanFile(minecraftVersion);
+        String sourceHash = computeSourceHash(minecraftVersion);
+        LaunchPlan plan = plans.get(planFile);
+        if (plan != null && plan.sourceHash().equals(sourceHash)) return plan;
+        plan = readPlan(planFile).filter(stored -> stored.sourceHash().equals(sourceHash)).orElse(null);
+        if (plan == null) {
+            logger.info("Compiling launch plan " + planFile.getFileName() + ".");
+            plan = compiler.compile(minecraftVersion, sourceHash);
+            writePlan(planFile, plan);
+        }
+        plans.put(planFile, plan);
+        return plan;
+    }
+
+    //Writes the arguments to a Java @argfile named after its content, so an unchanged set reuses the file on disk
+    public Optional<Path> getArgFile(MinecraftVersion minecraftVersion, List<String> arguments){
+        StringBuilder content = new StringBuilder();
+        for (String argument : arguments) {
+            appendArgFileArgument(content, argument);
+            content.append('\n');
+        }
+        //The java launcher reads argfiles in the platform encoding
+        Charset charset = Charset.forName(System.getProperty("native.encoding", Charset.defaultCharset().name()));
+        byte[] bytes = content.toString().getBytes(charset);
+        MessageDigest digest = newSha1();
+        String hash = HexFormat.of().formatHex(digest.digest(bytes), 0, 8);
+        Path planFile = getPlanFile(minecraftVersion);
+        String baseName = planFile.getFileName().toString().replace(".json", "");
+        Path argFile = planFile.resolveSibling(baseName + "-" + hash + ".args");
+        if (Files.exists(argFile)) return Optional.of(argFile);
+        try {
+            Path tempFile = argFile.resolveSibling(argFile.getFileName() + ".tmp");
+            Files.write(tempFile, bytes);
+            moveAtomically(tempFile, argFile);
+            deleteStaleArgFiles(argFile, baseName);
+            logger.info("Wrote argfile " + argFile.getFileName() + ".");
+            return Optional.of(argFile);
+        } catch (IOException e) {
+            logger.error("Error writing argfile " + argFile + ".", e);
+            return Optional.empty();
+        }
+    }
+
+    //Every argument is quoted, inside quotes the launcher treats backslash as an escape character
+    private void appendArgFileArgument(StringBuilder content, String argument){
+        content.append('"');
+        for (int i = 0; i < argument.length(); i++) {
+            char c = argument.charAt(i);
+            switch (c) {
+                case '\\' -> content.append("\\\\");
+                case '"' -> content.append("\\\"");
+                case '\n' -> content.append("\\n");
+                case '\r' -> content.append("\\r");
+                case '\t' -> content.append("\\t");
+                default -> content.append(c);
+            }
+        }
+        content.append('"');
+    }
+
+    //Only argfiles past the grace period go, a launch started just before may not have read its own yet
+    private void deleteStaleArgFiles(Path current, String baseName){
+        FileTime threshold = FileTime.from(Instant.now().minus(ARG_FILE_GRACE_PERIOD));
+        try (DirectoryStream<Path> argFiles = Files.newDirectoryStream(current.getParent(), baseName + "-*.args")) {
+            for (Path argFile : argFiles) {
+                if (argFile.equals(current)) continue;
+                try {
+                    if (Files.getLastModifiedTime(argFile).compareTo(threshold) < 0) Files.deleteIfExists(argFile);
+                } catch (NoSuchFileException ignored) {
+                    //Already removed by another launch
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error deleting stale argfiles of " + baseName + ".", e);
+        }
+    }
+
+    public void invalidate(MinecraftVersion minecraftVersion){
+        Path planFile = getPlanFile(minecraftVersion);
+        plans.remove(planFile);
+        try {
+            Files.deleteIfExists(planFile);
+        } catch (IOException e) {
+            logger.error("Error deleting launch plan " + planFile + ".", e);
+        }
+    }
+
+    private Path getPlanFile(MinecraftVersion minecraftVersion){
+        String version = minecraftVersion.getVersion();
+        Loader loader = minecraftVersion.getLoader();
+        String loaderKey = loader == null ? "vanilla" : loader.getId() + "-" + loader.getVersion();
+        return dataController.getVersionsPath().resolve(version)
+                .resolve(version + ".launch-" + loaderKey + "-" + systemController.getOsName() + ".json");
+    }
+
+    //Hashes the inputs, not their parsed form: the version json bytes, the loader state and the local layout
+    private String computeSourceHash(MinecraftVersion minecraftVersion){
+        MessageDigest digest = newSha1();
+        String version = minecraftVersion.getVersion();
+        Path versionDataFile = dataController.getVersionsPath().resolve(version).resolve(version + ".json");
+        try {
+            digest.update(Files.readAllBytes(versionDataFile));
+        } catch (IOException e) {
+            digest.update(minecraftVersion.getVersionData().toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Loader loader = minecraftVersion.getLoader();
+        StringBuilder inputs = new StringBuilder()
+                .append(LaunchPlan.FORMAT_VERSION).append('\n')
+                .append(systemController.getOsName()).append('\n')
+                .append(systemController.getNatives()).append('\n')
+                .append(dataController.getDataPath()).append('\n')
+                .append(launcherData.launcherName()).append('\n')
+                .append(launcherData.launcherVersion()).append('\n')
+                .append(minecraftVersion.getRuntimeComponent()).append('\n')
+                .append(minecraftVersion.getAssetIndexId()).append('\n')
+                .append(minecraftVersion.getMainClass()).append('\n');
+        if (loader != null) {
+            inputs.append(loader.getId()).append(':').append(loader.getVersion()).append('\n')
+                    .append(loader.getInstaller().saveState());
+        }
+        digest.update(inputs.toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest newSha1(){
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available.", e);
+        }
+    }
+
+    private Optional<LaunchPlan> readPlan(Path planFile){
+        if (!Files.exists(planFile)) return Optional.empty();
+        try {
+            return Optional.of(LaunchPlan.fromJson(FetchingUtils.loadJson(planFile)));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Discarding unreadable launch plan " + planFile + ".", e);
+            return Optional.empty();
+        }
+    }
+
+    private void writePlan(Path planFile, LaunchPlan plan){
+        try {
+            Files.createDirectories(planFile.getParent());
+            Path tempFile = planFile.resolveSibling(planFile.getFileName() + ".tmp");
+            Files.writeString(tempFile, plan.toJson().toString());
+            moveAtomically(tempFile, planFile);
+        } catch (IOException e) {
+            logger.error("Error saving launch plan " + planFile + ".", e);
+        }
+    }
+
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
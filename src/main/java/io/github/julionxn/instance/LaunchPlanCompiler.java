@@ -0,0 +1,239 @@
+package io.github.julionxn.instance;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.github.julionxn.LauncherData;
+import io.github.julionxn.data.DataController;
+import io.github.julionxn.system.Natives;
+import io.github.julionxn.system.SystemController;
+import io.github.julionxn.utils.FetchingUtils;
+import io.github.julionxn.version.MinecraftVersion;
+import io.github.julionxn.version.data.Library;
+import io.github.julionxn.version.loaders.Loader;
+
+import java.nio.file.Path;
+import java.util.*;
+
+//Walks the version json and the loader once and resolves everything that doesn't depend on the player
+class LaunchPlanCompiler {
+
+    private final SystemController systemController;
+    private final DataController dataController;
+    private final LauncherData launcherData;
+
+    LaunchPlanCompiler(SystemController systemController, DataController dataController, LauncherData launcherData){
+        this.systemController = systemController;
+        this.dataController = dataController;
+        this.launcherData = launcherData;
+    }
+
+    LaunchPlan compile(MinecraftVersion minecraftVersion, String sourceHash){
+        JsonObject versionManifest = minecraftVersion.getVersionData();
+        String component = minecraftVersion.getRuntimeComponent();
+        String javaPath = dataController.getRuntimesPath().resolve(component) + "/bin/java";
+        Map<LaunchVariable, String> variables = getVersionVariables(minecraftVersion);
+        List<ArgumentTemplate> jvmArguments = bindAll(parseJVMRules(minecraftVersion, versionManifest), variables);
+        List<String> gameArguments = new ArrayList<>();
+        Map<String, List<String>> featureArguments = new LinkedHashMap<>();
+        parseManifestGameArgs(versionManifest, gameArguments, featureArguments);
+        Map<String, List<ArgumentTemplate>> boundFeatureArguments = new LinkedHashMap<>();
+        featureArguments.forEach((feature, arguments) -> boundFeatureArguments.put(feature, bindAll(arguments, variables)));
+        List<String> classpath = parseLibraries(fetchLibraries(minecraftVersion, versionManifest));
+        return new LaunchPlan(sourceHash, javaPath, jvmArguments, minecraftVersion.getMainClass(),
+                bindAll(gameArguments, variables), Map.copyOf(boundFeatureArguments), classpath);
+    }
+
+    private Map<LaunchVariable, String> getVersionVariables(MinecraftVersion minecraftVersion){
+        Map<LaunchVariable, String> variables = new EnumMap<>(LaunchVariable.class);
+        variables.put(LaunchVariable.NATIVES_DIRECTORY, dataController.getNativesPath().resolve(minecraftVersion.getVersion()).toString());
+        variables.put(LaunchVariable.LAUNCHER_NAME, launcherData.launcherName());
+        variables.put(LaunchVariable.LAUNCHER_VERSION, launcherData.launcherVersion());
+        variables.put(LaunchVariable.VERSION_NAME, minecraftVersion.getVersion());
+        variables.put(LaunchVariable.ASSETS_ROOT, dataController.getAssetsPath().toString());
+        variables.put(LaunchVariable.ASSETS_INDEX_NAME, minecraftVersion.getAssetIndexId());
+        variables.put(LaunchVariable.VERSION_TYPE, minecraftVersion.getVersionType().toString().toLowerCase());
+        variables.put(LaunchVariable.LIBRARY_DIRECTORY, dataController.getLibrariesPath().toString());
+        variables.put(LaunchVariable.CLASSPATH_SEPARATOR, FetchingUtils.getClassPathSeparator(systemController.getOsName()));
+        return variables;
+    }
+
+    private List<ArgumentTemplate> bindAll(List<String> arguments, Map<LaunchVariable, String> variables){
+        List<ArgumentTemplate> templates = new ArrayList<>(arguments.size());
+        for (String argument : arguments) {
+            templates.add(ArgumentTemplate.parse(argument).bind(variables));
+        }
+        return List.copyOf(templates);
+    }
+
+    private List<String> parseJVMRules(MinecraftVersion minecraftVersion, JsonObject manifest){
+        List<String> command = new ArrayList<>();
+        String os = systemController.getOsName();
+        Natives natives = systemController.getNatives();
+        command.add("-Dorg.lwjgl.util.Debug=true");
+        command.add("-Dorg.lwjgl.util.DebugLoader=true");
+        JsonArray jvmArgs = manifest.get("arguments").getAsJsonObject()
+                .get("jvm").getAsJsonArray();
+        for (JsonElement jvmArg : jvmArgs) {
+            if (jvmArg.isJsonObject()){
+                JsonObject ruleData = jvmArg.getAsJsonObject();
+                JsonArray rules = ruleData.getAsJsonArray("rules");
+                String arg = ruleData.get("value").getAsString();
+                for (JsonElement jsonElement : rules) {
+                    JsonObject rule = jsonElement.getAsJsonObject();
+                    JsonObject osRule = rule.get("os").getAsJsonObject();
+                    if (osRule.has("name")){
+                        String validOs = osRule.get("name").getAsString();
+                        if (validOs.equals(os)){
+                            command.add(arg);
+                        }
+                    }
+                    if (osRule.has("arch")){
+                        String validArch = osRule.get("arch").getAsString();
+                        if (validArch.equals("x86")){
+                            if (natives == Natives.WIN86){
+                                command.add(arg);
+                            }
+                        }
+                    }
+                }
+            } else {
+                command.add(jvmArg.getAsString());
+            }
+        }
+        Loader loader = minecraftVersion.getLoader();
+        if (loader != null){
+            List<String> jvmLoaderArgs = loader.getInstaller().getJVMArgs();
+            if (jvmLoaderArgs != null){
+                command.addAll(jvmLoaderArgs);
+            }
+        }
+        return command;
+    }
+
+    //Feature gated arguments are kept by feature, whether a feature is on is decided per launch
+    private void parseManifestGameArgs(JsonObject manifest, List<String> command, Map<String, List<String>> featureArguments){
+        JsonObject arguments = manifest.get("arguments").getAsJsonObject();
+        JsonArray game = arguments.get("game").getAsJsonArray();
+        for (JsonElement jsonElement : game) {
+            if (jsonElement.isJsonObject()){
+                JsonObject arg = jsonElement.getAsJsonObject();
+                JsonArray rules = arg.getAsJsonArray("rules");
+                JsonElement values = arg.get("value");
+                for (JsonElement ruleElement : rules) {
+                    JsonObject rule = ruleElement.getAsJsonObject();
+                    JsonObject features = rule.get("features").getAsJsonObject();
+                    for (Map.Entry<String, JsonElement> feature : features.entrySet()) {
+                        if (!feature.getValue().getAsBoolean()) continue;
+                        List<String> featureValues = featureArguments.computeIfAbsent(feature.getKey(), key -> new ArrayList<>());
+                        if (values.isJsonArray()) {
+                            for (JsonElement element : values.getAsJsonArray()) {
+                                featureValues.add(element.getAsString());
+                            }
+                        } else {
+                            featureValues.add(values.getAsString());
+                        }
+                    }
+                }
+                continue;
+            }
+            command.add(jsonElement.getAsString());
+        }
+    }
+
+    private List<Library> fetchLibraries(MinecraftVersion minecraftVersion, JsonObject manifest){
+        JsonArray libraries = manifest.get("libraries").getAsJsonArray();
+        String os = systemController.getOsName();
+        Path librariesDirectory = dataController.getLibrariesPath();
+        Path versionsDirectory = dataController.getVersionsPath();
+        List<Library> vanillaLibraries = new ArrayList<>();
+        Loader loader = minecraftVersion.getLoader();
+        if (loader != null){
+            List<Library> loaderLibraries = loader.getInstaller().getLibraries();
+            if (loaderLibraries != null){
+                vanillaLibraries.addAll(loaderLibraries);
+            }
+        }
+        for (JsonElement library : libraries) {
+            if (library.getAsJsonObject().has("rules")){
+                JsonArray rules = library.getAsJsonObject().getAsJsonArray("rules");
+                boolean breakLibrary = false;
+                for (JsonElement rule : rules) {
+                    JsonObject osRule = rule.getAsJsonObject().getAsJsonObject("os");
+                    if (osRule.has("name")){
+                        String validOs = osRule.get("name").getAsString();
+                        if (!validOs.equals(os)){
+                            breakLibrary = true;
+                        }
+                    }
+                }
+                if (breakLibrary) continue;
+            }
+            JsonObject downloads = library.getAsJsonObject().get("downloads").getAsJsonObject();
+            for (Map.Entry<String, JsonElement> entry : downloads.entrySet()) {
+                JsonObject value = entry.getValue().getAsJsonObject();
+                String relativePath = value.get("path").getAsString();
+                Path path = librariesDirectory.resolve(relativePath);
+                String artifact = path.getParent().getParent().getFileName().toString();
+                String version = path.getParent().getFileName().toString();
+                vanillaLibraries.add(new Library(artifact, version, path));
+            }
+        }
+        String jarVersion = minecraftVersion.getVersion();
+        Path jarPath = versionsDirectory.resolve(jarVersion + "/" + jarVersion + ".jar");
+        vanillaLibraries.add(new Library("minecraft-client", jarVersion, jarPath));
+        return vanillaLibraries;
+    }
+
+    //Keeps the newest version of every artifact, in the order artifacts first appear
+    private List<String> parseLibraries(List<Library> libraries) {
+        Map<String, List<Library>> byArtifact = new LinkedHashMap<>();
+        for (Library library : libraries) {
+            byArtifact.computeIfAbsent(library.artifact(), key -> new ArrayList<>()).add(library);
+        }
+        List<String> classpath = new ArrayList<>(libraries.size());
+        for (List<Library> group : byArtifact.values()) {
+            for (Library library : selectLatestVersion(group)) {
+                classpath.add(library.path().toString());
+            }
+        }
+        return List.copyOf(classpath);
+    }
+
+    private List<Library> selectLatestVersion(List<Library> group) {
+        if (group.size() == 1) return group;
+        String latest = group.get(0).version();
+        for (Library library : group) {
+            if (compareVersions(library.version(), latest) > 0) latest = library.version();
+        }
+        List<Library> selected = new ArrayList<>();
+        for (Library library : group) {
+            if (library.version().equals(latest)) selected.add(library);
+        }
+        return selected;
+    }
+
+    //Numeric comparison segment by segment, versions with a non numeric segment sort first
+    static int compareVersions(String first, String second) {
+        int[] firstParts = parseVersion(first);
+        int[] secondParts = parseVersion(second);
+        if (firstParts == null || secondParts == null) {
+            return Boolean.compare(firstParts != null, secondParts != null);
+        }
+        return Arrays.compare(firstParts, secondParts);
+    }
+
+    private static int[] parseVersion(String version) {
+        String[] parts = version.split("\\.");
+        int[] numbers = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                numbers[i] = Integer.parseInt(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return numbers;
+    }
+
+}
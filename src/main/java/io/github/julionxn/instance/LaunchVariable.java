@@ -0,0 +1,68 @@
+package io.github.julionxn.instance;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//Placeholders the version json and loaders use in their arguments. VERSION ones are bound when the launch
+//plan is compiled, LAUNCH ones come from the LaunchContext of every launch
+public enum LaunchVariable {
+    NATIVES_DIRECTORY("natives_directory", Scope.VERSION),
+    LAUNCHER_NAME("launcher_name", Scope.VERSION),
+    LAUNCHER_VERSION("launcher_version", Scope.VERSION),
+    VERSION_NAME("version_name", Scope.VERSION),
+    ASSETS_ROOT("assets_root", Scope.VERSION),
+    ASSETS_INDEX_NAME("assets_index_name", Scope.VERSION),
+    VERSION_TYPE("version_type", Scope.VERSION),
+    LIBRARY_DIRECTORY("library_directory", Scope.VERSION),
+    CLASSPATH_SEPARATOR("classpath_separator", Scope.VERSION),
+    CLASSPATH("classpath", Scope.LAUNCH),
+    AUTH_PLAYER_NAME("auth_player_name", Scope.LAUNCH),
+    AUTH_UUID("auth_uuid", Scope.LAUNCH),
+    AUTH_ACCESS_TOKEN("auth_access_token", Scope.LAUNCH),
+    AUTH_SESSION("auth_session", Scope.LAUNCH),
+    USER_TYPE("user_type", Scope.LAUNCH),
+    USER_PROPERTIES("user_properties", Scope.LAUNCH),
+    GAME_DIRECTORY("game_directory", Scope.LAUNCH),
+    RESOLUTION_WIDTH("resolution_width", Scope.LAUNCH),
+    RESOLUTION_HEIGHT("resolution_height", Scope.LAUNCH);
+
+    private static final Map<String, LaunchVariable> BY_NAME = new HashMap<>();
+
+    static {
+        for (LaunchVariable variable : values()) {
+            BY_NAME.put(variable.name, variable);
+        }
+    }
+
+    private final String name;
+    private final Scope scope;
+
+    LaunchVariable(String name, Scope scope){
+        this.name = name;
+        this.scope = scope;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public Scope getScope(){
+        return scope;
+    }
+
+    public String getPlaceholder(){
+        return "${" + name + "}";
+    }
+
+    public static @Nullable LaunchVariable byName(String name){
+        return BY_NAME.get(name);
+    }
+
+    public enum Scope {
+        VERSION,
+        LAUNCH
+    }
+
+}
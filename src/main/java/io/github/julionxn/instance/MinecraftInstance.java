@@ -10,6 +10,7 @@ import io.github.julionxn.version.MinecraftVersion;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.List;
 
 public class MinecraftInstance {
 
@@ -21,6 +22,8 @@ public class MinecraftInstance {
     private final Profile profile;
     private final PlayerInfo playerInfo;
     private final CoreLogger logger;
+    private final LaunchPlanCache launchPlanCache;
+    private final ClassDataSharing classDataSharing;
 
     public MinecraftInstance(Launcher launcher, MinecraftVersion version, MinecraftOptions options, Profile profile, PlayerInfo playerInfo){
         this.launcherData = launcher.getLauncherData();
@@ -31,14 +34,16 @@ public class MinecraftInstance {
         this.profile = profile;
         this.playerInfo = playerInfo;
         this.logger = launcher.getLogger();
+        this.launchPlanCache = launcher.getLaunchPlanCache();
+        this.classDataSharing = launcher.getClassDataSharing();
     }
 
     public void run(){
         CommandBuilder commandBuilder = new CommandBuilder(this);
-        String cmd = commandBuilder.build();
-        logger.info(cmd);
+        List<String> command = commandBuilder.build();
+        logger.info(String.join(" ", command));
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(cmd.split(" "));
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
             processBuilder.redirectErrorStream(true);
             Process process = processBuilder.start();
             BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
@@ -47,6 +52,7 @@ public class MinecraftInstance {
                 logger.info(line);
             }
             int exitCode = process.waitFor();
+            commandBuilder.getCdsRecording().ifPresent(recording -> classDataSharing.complete(recording, exitCode));
             logger.info("Process exited with code: " + exitCode);
         } catch (Exception e) {
             logger.error("Something went wrong. ", e);
@@ -80,4 +86,12 @@ public class MinecraftInstance {
     public DataController getDataController() {
         return dataController;
     }
+
+    public LaunchPlanCache getLaunchPlanCache() {
+        return launchPlanCache;
+    }
+
+    public ClassDataSharing getClassDataSharing() {
+        return classDataSharing;
+    }
 }
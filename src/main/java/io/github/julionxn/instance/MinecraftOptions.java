@@ -6,5 +6,13 @@ public class MinecraftOptions {
     public String resolutionWidth = "854";
     public String resolutionHeight = "480";
     public String userType = "msa";
+    //Passes the JVM options and classpath through a Java @argfile, on runtimes that support it
+    public boolean useArgFile = false;
+    //Records an AppCDS archive on the first launch and maps it on the next ones, Java 13+ runtimes only
+    public boolean useClassDataSharing = false;
+    //Heap and GC flags sized from the host, merged under the version and loader JVM arguments
+    public JvmTuningProfile tuningProfile = JvmTuningProfile.NONE;
+    //Instances expected to run at once on this host, they split its memory and cores
+    public int expectedInstances = 1;
 
 }
@@ -0,0 +1,158 @@
+package io.github.julionxn.logging;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+//Hands records to a single writer thread through a lock-free ring buffer, the targets are only ever
+//called from that thread and flushed once per batch instead of once per record
+public class AsyncLogHandler extends Handler {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(200);
+
+    private final List<Handler> targets;
+    private final LogRingBuffer<LogRecord> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean waiting;
+    private volatile boolean flushRequested;
+
+    public AsyncLogHandler(String name, List<Handler> targets){
+        this(name, targets, DEFAULT_CAPACITY, OverflowPolicy.DROP_BELOW_WARNING, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    public AsyncLogHandler(String name, List<Handler> targets, int capacity, OverflowPolicy overflowPolicy, int batchSize, Duration flushInterval){
+        this.targets = List.copyOf(targets);
+        this.buffer = new LogRingBuffer<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.writer = new Thread(this::drain, name + "-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!running || !isLoggable(record)) return;
+        if (Thread.currentThread() == writer) {
+            //A target logging through this handler would otherwise wait on itself
+            write(record);
+            return;
+        }
+        if (!buffer.offer(record) && !handleOverflow(record)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (waiting) LockSupport.unpark(writer);
+    }
+
+    private boolean handleOverflow(LogRecord record){
+        boolean block = switch (overflowPolicy) {
+            case DROP -> false;
+            case DROP_BELOW_WARNING -> record.getLevel().intValue() >= Level.WARNING.intValue();
+            case BLOCK -> true;
+        };
+        if (!block) return false;
+        while (running) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            if (buffer.offer(record)) return true;
+        }
+        return false;
+    }
+
+    //Only the writer thread polls the buffer
+    private void drain(){
+        int pending = 0;
+        long firstPendingAt = 0;
+        while (running || !buffer.isEmpty()) {
+            LogRecord record = buffer.poll();
+            if (record != null) {
+                write(record);
+                if (pending++ == 0) firstPendingAt = System.nanoTime();
+                if (pending >= batchSize) {
+                    flushTargets();
+                    pending = 0;
+                }
+                continue;
+            }
+            long waitNanos = flushIntervalNanos;
+            if (pending > 0) waitNanos -= System.nanoTime() - firstPendingAt;
+            if (waitNanos <= 0 || flushRequested) {
+                flushTargets();
+                pending = 0;
+                flushRequested = false;
+                continue;
+            }
+            waiting = true;
+            if (running && buffer.isEmpty()) LockSupport.parkNanos(this, waitNanos);
+            waiting = false;
+        }
+        flushTargets();
+    }
+
+    private void write(LogRecord record){
+        for (Handler target : targets) {
+            try {
+                target.publish(record);
+            } catch (RuntimeException e) {
+                reportError("Log target failed.", e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+    }
+
+    private void flushTargets(){
+        long droppedRecords = dropped.getAndSet(0);
+        if (droppedRecords > 0) {
+            LogRecord record = new LogRecord(Level.WARNING, droppedRecords + " log records dropped, the log buffer was full.");
+            record.setLoggerName(writer.getName());
+            write(record);
+        }
+        for (Handler target : targets) {
+            target.flush();
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (Thread.currentThread() == writer) {
+            flushTargets();
+            return;
+        }
+        //Waits until the writer drained everything published so far and flushed the targets
+        flushRequested = true;
+        while (running && flushRequested) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Handler target : targets) {
+            target.close();
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package io.github.julionxn.logging;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+//Bounded lock-free queue for many producers and a single consumer, each slot carries a sequence number
+//telling producers and the consumer whose turn it is, so neither side ever takes a lock
+class LogRingBuffer<T> {
+
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    //Only the consumer thread touches the head
+    private long head;
+
+    LogRingBuffer(int capacity){
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity + ".");
+        }
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    //Returns false when the buffer is full
+    boolean offer(T element){
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Nullable T poll(){
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) return null;
+        T element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    //Consumer side only, like poll
+    boolean isEmpty(){
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    int capacity(){
+        return mask + 1;
+    }
+
+}
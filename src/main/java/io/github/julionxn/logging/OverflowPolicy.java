@@ -0,0 +1,10 @@
+package io.github.julionxn.logging;
+
+public enum OverflowPolicy {
+    //Drops the new record and counts it, logging never slows the caller down
+    DROP,
+    //Drops records below WARNING, errors wait for room so they are never lost
+    DROP_BELOW_WARNING,
+    //The caller waits for room, nothing is lost
+    BLOCK
+}
@@ -127,9 +127,7 @@ public class ModpackBundlerFetcher extends ProfilesFetcher {
                 int size = details.get("size").getAsInt();
                 Optional<URL> urlOpt = resolveUrl(url, path);
                 if (urlOpt.isEmpty()) continue;
-                DownloadStatus status = downloadAndCheckFile(urlOpt.get(), hash, size, filePath.toFile(), () ->
-                        downloadFile(urlOpt.get(), filePath.toFile(), hash, size)
-                );
+                DownloadStatus status = downloadAndCheckFile(urlOpt.get(), hash, size, filePath.toFile());
                 if (status != DownloadStatus.OK) {
                     logger.error("Something happened while downloading " + path + ", CODE: " + status + ".");
                 } else {
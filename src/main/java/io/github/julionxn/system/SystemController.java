@@ -4,8 +4,11 @@ import io.github.julionxn.CoreLogger;
 import io.github.julionxn.LauncherData;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Path;
 
+import com.sun.management.OperatingSystemMXBean;
+
 public class SystemController {
 
     private final CoreLogger logger;
@@ -14,6 +17,8 @@ public class SystemController {
     private final File launcherFolderFile;
     private Natives natives;
     private String osName;
+    private long totalMemory;
+    private int availableProcessors;
 
     public SystemController(CoreLogger logger, LauncherData launcherData){
         this.logger = logger;
@@ -24,9 +29,21 @@ public class SystemController {
 
     public void initialize(){
         fetchOsAndNatives();
+        fetchHardware();
         checkFolders();
     }
 
+    private void fetchHardware() {
+        availableProcessors = Runtime.getRuntime().availableProcessors();
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof OperatingSystemMXBean osBean) {
+            //Honors container limits, like availableProcessors
+            totalMemory = osBean.getTotalMemorySize();
+        } else {
+            logger.warning("Total memory of the host is unknown.");
+            totalMemory = -1;
+        }
+    }
+
     private void fetchOsAndNatives() {
         String osNameProperty = System.getProperty("os.name").toLowerCase();
         String osArchProperty = System.getProperty("os.arch").toLowerCase();
@@ -79,6 +96,15 @@ public class SystemController {
         return osName;
     }
 
+    //Bytes of physical memory, -1 when unknown
+    public long getTotalMemory(){
+        return totalMemory;
+    }
+
+    public int getAvailableProcessors(){
+        return availableProcessors;
+    }
+
     public void checkFolders(){
         if (!rootFile.exists()){
             logger.error("Root path does not exist.");
@@ -2,14 +2,21 @@ package io.github.julionxn.utils;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import io.github.julionxn.version.data.MavenMetadata;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -45,20 +52,47 @@ public class FetchingUtils {
     }
 
     public static Optional<JsonObject> fetchJsonData(URL requestUrl) throws IOException {
-        HttpURLConnection connection = (HttpURLConnection) requestUrl.openConnection();
-        int responseCode = connection.getResponseCode();
-        if (responseCode != HttpURLConnection.HTTP_OK){
+        return fetchJsonSubtree(requestUrl).filter(JsonElement::isJsonObject).map(JsonElement::getAsJsonObject);
+    }
+
+    public static Optional<JsonElement> fetchJsonSubtree(URL requestUrl, String... path) throws IOException {
+        return fetchParsed(requestUrl, inputStream -> readJsonSubtree(inputStream, path));
+    }
+
+    public static <T> Optional<T> fetchParsed(URL requestUrl, StreamParser<T> parser) throws IOException {
+        HttpTransport transport = HttpTransport.shared();
+        HttpResponse<InputStream> httpResponse = transport.send(transport.compressedRequest(requestUrl).build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (httpResponse.statusCode() != HttpURLConnection.HTTP_OK){
+            httpResponse.body().close();
             return Optional.empty();
         }
-        BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-        String inputLine;
-        StringBuilder responseString = new StringBuilder();
-        while ((inputLine = in.readLine()) != null){
-            responseString.append(inputLine);
+        try (InputStream inputStream = HttpTransport.decodedBody(httpResponse)) {
+            return parser.parse(inputStream);
+        }
+    }
+
+    //Walks down the object keys in path, skipping every sibling without building it
+    public static Optional<JsonElement> readJsonSubtree(InputStream inputStream, String... path) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        try {
+            for (String key : path) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) return Optional.empty();
+                reader.beginObject();
+                boolean found = false;
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals(key)) {
+                        found = true;
+                        break;
+                    }
+                    reader.skipValue();
+                }
+                if (!found) return Optional.empty();
+            }
+            return Optional.of(JsonParser.parseReader(reader));
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Malformed JSON document.", e);
         }
-        in.close();
-        JsonObject response = JsonParser.parseString(responseString.toString()).getAsJsonObject();
-        return Optional.of(response);
     }
 
     public static Optional<MavenMetadata> parseMavenMetadata(String url) throws IOException {
@@ -75,20 +109,13 @@ public class FetchingUtils {
     }
 
     private static Optional<String> fetchUrlContent(String urlString) throws IOException {
-        StringBuilder content = new StringBuilder();
-        URL url = new URL(urlString);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK){
+        URI uri = URI.create(urlString);
+        HttpResponse<String> response = HttpTransport.shared()
+                .send(HttpTransport.shared().request(uri).build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != HttpURLConnection.HTTP_OK){
             return Optional.empty();
         }
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append("\n");
-            }
-        }
-        return Optional.of(content.toString());
+        return Optional.of(response.body());
     }
 
     private static String extractFirstMatch(String regex, String text) {
@@ -111,4 +138,9 @@ public class FetchingUtils {
         return osName.equals("windows") ? ";" : ":";
     }
 
+    @FunctionalInterface
+    public interface StreamParser<T> {
+        Optional<T> parse(InputStream inputStream) throws IOException;
+    }
+
 }
@@ -0,0 +1,98 @@
+package io.github.julionxn.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+public class HttpTransport {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static volatile HttpTransport shared = new HttpTransport(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT);
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+
+    public HttpTransport(Duration connectTimeout, Duration requestTimeout){
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build();
+        this.requestTimeout = requestTimeout;
+    }
+
+    public static HttpTransport shared(){
+        return shared;
+    }
+
+    public static void configure(Duration connectTimeout, Duration requestTimeout){
+        shared = new HttpTransport(connectTimeout, requestTimeout);
+    }
+
+    public HttpRequest.Builder request(URI uri){
+        return HttpRequest.newBuilder(uri).timeout(requestTimeout).GET();
+    }
+
+    public HttpRequest.Builder request(URL url) throws IOException {
+        return request(toURI(url));
+    }
+
+    //Only for documents that are parsed, downloads are hashed and must arrive byte for byte
+    public HttpRequest.Builder compressedRequest(URL url) throws IOException {
+        return request(url).header("Accept-Encoding", "gzip");
+    }
+
+    public static InputStream decodedBody(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+        if (encoding.equalsIgnoreCase("gzip")) return new GZIPInputStream(response.body(), BUFFER_SIZE);
+        return response.body();
+    }
+
+    public HttpResponse<InputStream> get(URL url) throws IOException {
+        return send(request(url).build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        try {
+            return client.send(request, bodyHandler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while requesting " + request.uri());
+        }
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler){
+        return client.sendAsync(request, bodyHandler);
+    }
+
+    //Fire and forget HEAD request, so the pooled connection is already open when the downloads start
+    public void preconnect(URI uri){
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).exceptionally(error -> null);
+    }
+
+    public static URI toURI(URL url) throws IOException {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid URL " + url, e);
+        }
+    }
+
+}
@@ -0,0 +1,332 @@
+package io.github.julionxn.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+//Decoder for the .lzma ("LZMA alone") container used by Mojang's runtime manifests
+public class LzmaInputStream extends InputStream {
+
+    private static final int NUM_STATES = 12;
+    private static final int POS_BITS_MAX = 4;
+    private static final int NUM_LEN_TO_POS_STATES = 4;
+    private static final int NUM_ALIGN_BITS = 4;
+    private static final int START_POS_MODEL_INDEX = 4;
+    private static final int END_POS_MODEL_INDEX = 14;
+    private static final int NUM_FULL_DISTANCES = 1 << (END_POS_MODEL_INDEX >>> 1);
+    private static final int MATCH_MIN_LEN = 2;
+    private static final int MATCH_MAX_LEN = 273;
+    private static final int MIN_DICTIONARY_SIZE = 1 << 12;
+    private static final int FILL_TARGET = 1 << 16;
+    private static final int TOP_VALUE = 1 << 24;
+    private static final int PROB_INIT = 1 << 10;
+
+    private final InputStream in;
+    private final int lc;
+    private final int lp;
+    private final int pb;
+    private final byte[] window;
+    private int windowPos;
+    private boolean windowFull;
+    private long totalPos;
+    private long readPos;
+    private long remaining;
+    private boolean finished;
+
+    private int range = 0xFFFFFFFF;
+    private int code;
+
+    private final short[] literalProbs;
+    private final short[] isMatch = new short[NUM_STATES << POS_BITS_MAX];
+    private final short[] isRep = new short[NUM_STATES];
+    private final short[] isRepG0 = new short[NUM_STATES];
+    private final short[] isRepG1 = new short[NUM_STATES];
+    private final short[] isRepG2 = new short[NUM_STATES];
+    private final short[] isRep0Long = new short[NUM_STATES << POS_BITS_MAX];
+    private final short[][] posSlotProbs = new short[NUM_LEN_TO_POS_STATES][1 << 6];
+    private final short[] posProbs = new short[1 + NUM_FULL_DISTANCES - END_POS_MODEL_INDEX];
+    private final short[] alignProbs = new short[1 << NUM_ALIGN_BITS];
+    private final LengthDecoder lenDecoder = new LengthDecoder();
+    private final LengthDecoder repLenDecoder = new LengthDecoder();
+    private int state;
+    private int rep0, rep1, rep2, rep3;
+
+    public LzmaInputStream(InputStream in) throws IOException {
+        this.in = in;
+        int properties = readByte();
+        if (properties >= 9 * 5 * 5) throw new IOException("Invalid LZMA properties.");
+        this.lc = properties % 9;
+        this.lp = (properties / 9) % 5;
+        this.pb = properties / 45;
+        int dictionarySize = 0;
+        for (int i = 0; i < 4; i++) {
+            dictionarySize |= readByte() << (8 * i);
+        }
+        long unpackedSize = 0;
+        for (int i = 0; i < 8; i++) {
+            unpackedSize |= (long) readByte() << (8 * i);
+        }
+        this.remaining = unpackedSize;
+        long windowSize = Integer.toUnsignedLong(dictionarySize);
+        if (unpackedSize >= 0) {
+            windowSize = Math.min(windowSize, unpackedSize);
+        }
+        this.window = new byte[(int) Math.min(Math.max(windowSize, MIN_DICTIONARY_SIZE), Integer.MAX_VALUE - 8)];
+        this.literalProbs = new short[0x300 << (lc + lp)];
+        resetProbabilities();
+        if (readByte() != 0) throw new IOException("Corrupted LZMA stream.");
+        for (int i = 0; i < 4; i++) {
+            code = (code << 8) | readByte();
+        }
+        if (code == range) throw new IOException("Corrupted LZMA stream.");
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        if (readPos == totalPos) {
+            fill();
+            if (readPos == totalPos) return -1;
+        }
+        int count = (int) Math.min(length, totalPos - readPos);
+        int start = windowPos - (int) (totalPos - readPos);
+        if (start < 0) start += window.length;
+        int firstPart = Math.min(count, window.length - start);
+        System.arraycopy(window, start, buffer, offset, firstPart);
+        System.arraycopy(window, 0, buffer, offset + firstPart, count - firstPart);
+        readPos += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void fill() throws IOException {
+        //Never decode past what the window can hold without overwriting unread bytes
+        long limit = Math.min(FILL_TARGET, window.length - MATCH_MAX_LEN);
+        while (!finished && totalPos - readPos < limit) {
+            if (remaining == 0) {
+                finished = true;
+                break;
+            }
+            decodeSymbol();
+        }
+    }
+
+    private void decodeSymbol() throws IOException {
+        int posState = (int) totalPos & ((1 << pb) - 1);
+        if (decodeBit(isMatch, (state << POS_BITS_MAX) + posState) == 0) {
+            decodeLiteral();
+            state = state < 4 ? 0 : state < 10 ? state - 3 : state - 6;
+            return;
+        }
+        int length;
+        if (decodeBit(isRep, state) != 0) {
+            if (totalPos == 0) throw new IOException("Corrupted LZMA stream.");
+            if (decodeBit(isRepG0, state) == 0) {
+                if (decodeBit(isRep0Long, (state << POS_BITS_MAX) + posState) == 0) {
+                    state = state < 7 ? 9 : 11;
+                    putByte(getByte(rep0 + 1));
+                    return;
+                }
+            } else {
+                int distance;
+                if (decodeBit(isRepG1, state) == 0) {
+                    distance = rep1;
+                } else {
+                    if (decodeBit(isRepG2, state) == 0) {
+                        distance = rep2;
+                    } else {
+                        distance = rep3;
+                        rep3 = rep2;
+                    }
+                    rep2 = rep1;
+                }
+                rep1 = rep0;
+                rep0 = distance;
+            }
+            length = repLenDecoder.decode(posState);
+            state = state < 7 ? 8 : 11;
+        } else {
+            rep3 = rep2;
+            rep2 = rep1;
+            rep1 = rep0;
+            length = lenDecoder.decode(posState);
+            state = state < 7 ? 7 : 10;
+            rep0 = decodeDistance(length);
+            if (rep0 == -1) {
+                //End marker
+                if (remaining > 0) throw new IOException("Unexpected LZMA end marker.");
+                finished = true;
+                return;
+            }
+            if (Integer.compareUnsigned(rep0, window.length) >= 0 || (!windowFull && rep0 >= windowPos)) {
+                throw new IOException("Corrupted LZMA stream.");
+            }
+        }
+        length += MATCH_MIN_LEN;
+        if (remaining >= 0 && remaining < length) throw new IOException("LZMA data exceeds the declared size.");
+        for (int i = 0; i < length; i++) {
+            putByte(getByte(rep0 + 1));
+        }
+    }
+
+    private void decodeLiteral() throws IOException {
+        int previousByte = totalPos == 0 ? 0 : getByte(1) & 0xFF;
+        int literalState = (((int) totalPos & ((1 << lp) - 1)) << lc) + (previousByte >>> (8 - lc));
+        int base = 0x300 * literalState;
+        int symbol = 1;
+        if (state >= 7) {
+            int matchByte = getByte(rep0 + 1) & 0xFF;
+            do {
+                int matchBit = (matchByte >>> 7) & 1;
+                matchByte <<= 1;
+                int bit = decodeBit(literalProbs, base + ((1 + matchBit) << 8) + symbol);
+                symbol = (symbol << 1) | bit;
+                if (matchBit != bit) break;
+            } while (symbol < 0x100);
+        }
+        while (symbol < 0x100) {
+            symbol = (symbol << 1) | decodeBit(literalProbs, base + symbol);
+        }
+        putByte((byte) symbol);
+    }
+
+    private int decodeDistance(int length) throws IOException {
+        int lenState = Math.min(length, NUM_LEN_TO_POS_STATES - 1);
+        int posSlot = decodeBitTree(posSlotProbs[lenState], 6);
+        if (posSlot < START_POS_MODEL_INDEX) return posSlot;
+        int directBits = (posSlot >>> 1) - 1;
+        int distance = (2 | (posSlot & 1)) << directBits;
+        if (posSlot < END_POS_MODEL_INDEX) {
+            distance += decodeReverseBitTree(posProbs, distance - posSlot, directBits);
+        } else {
+            distance += decodeDirectBits(directBits - NUM_ALIGN_BITS) << NUM_ALIGN_BITS;
+            distance += decodeReverseBitTree(alignProbs, 0, NUM_ALIGN_BITS);
+        }
+        return distance;
+    }
+
+    private void putByte(byte value){
+        window[windowPos++] = value;
+        if (windowPos == window.length) {
+            windowPos = 0;
+            windowFull = true;
+        }
+        totalPos++;
+        if (remaining > 0) remaining--;
+    }
+
+    private byte getByte(int distance){
+        int index = windowPos - distance;
+        if (index < 0) index += window.length;
+        return window[index];
+    }
+
+    private int decodeBit(short[] probs, int index) throws IOException {
+        int prob = probs[index];
+        int bound = (range >>> 11) * prob;
+        int bit;
+        if (Integer.compareUnsigned(code, bound) < 0) {
+            range = bound;
+            probs[index] = (short) (prob + (((1 << 11) - prob) >>> 5));
+            bit = 0;
+        } else {
+            range -= bound;
+            code -= bound;
+            probs[index] = (short) (prob - (prob >>> 5));
+            bit = 1;
+        }
+        normalize();
+        return bit;
+    }
+
+    private int decodeDirectBits(int count) throws IOException {
+        int result = 0;
+        for (int i = 0; i < count; i++) {
+            range >>>= 1;
+            code -= range;
+            int mask = -(code >>> 31);
+            code += range & mask;
+            if (code == range) throw new IOException("Corrupted LZMA stream.");
+            normalize();
+            result = (result << 1) + (mask + 1);
+        }
+        return result;
+    }
+
+    private int decodeBitTree(short[] probs, int bits) throws IOException {
+        int m = 1;
+        for (int i = 0; i < bits; i++) {
+            m = (m << 1) + decodeBit(probs, m);
+        }
+        return m - (1 << bits);
+    }
+
+    private int decodeReverseBitTree(short[] probs, int offset, int bits) throws IOException {
+        int m = 1;
+        int symbol = 0;
+        for (int i = 0; i < bits; i++) {
+            int bit = decodeBit(probs, offset + m);
+            m = (m << 1) + bit;
+            symbol |= bit << i;
+        }
+        return symbol;
+    }
+
+    private void normalize() throws IOException {
+        if (Integer.compareUnsigned(range, TOP_VALUE) < 0) {
+            range <<= 8;
+            code = (code << 8) | readByte();
+        }
+    }
+
+    private int readByte() throws IOException {
+        int value = in.read();
+        if (value == -1) throw new EOFException("Truncated LZMA stream.");
+        return value;
+    }
+
+    private void resetProbabilities(){
+        for (short[] probs : new short[][]{literalProbs, isMatch, isRep, isRepG0, isRepG1, isRepG2, isRep0Long, posProbs, alignProbs}) {
+            Arrays.fill(probs, (short) PROB_INIT);
+        }
+        for (short[] probs : posSlotProbs) {
+            Arrays.fill(probs, (short) PROB_INIT);
+        }
+    }
+
+    private class LengthDecoder {
+
+        private final short[] choice = new short[2];
+        private final short[][] low = new short[1 << POS_BITS_MAX][1 << 3];
+        private final short[][] mid = new short[1 << POS_BITS_MAX][1 << 3];
+        private final short[] high = new short[1 << 8];
+
+        private LengthDecoder(){
+            Arrays.fill(choice, (short) PROB_INIT);
+            Arrays.fill(high, (short) PROB_INIT);
+            for (int i = 0; i < low.length; i++) {
+                Arrays.fill(low[i], (short) PROB_INIT);
+                Arrays.fill(mid[i], (short) PROB_INIT);
+            }
+        }
+
+        private int decode(int posState) throws IOException {
+            if (decodeBit(choice, 0) == 0) return decodeBitTree(low[posState], 3);
+            if (decodeBit(choice, 1) == 0) return 8 + decodeBitTree(mid[posState], 3);
+            return 16 + decodeBitTree(high, 8);
+        }
+
+    }
+
+}
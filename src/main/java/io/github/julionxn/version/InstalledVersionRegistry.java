@@ -0,0 +1,208 @@
+package io.github.julionxn.version;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.github.julionxn.CoreLogger;
+import io.github.julionxn.data.DataController;
+import io.github.julionxn.utils.FetchingUtils;
+import io.github.julionxn.version.installers.LoaderInstaller;
+import io.github.julionxn.version.loaders.Loader;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//Versions that finished a verified install, with everything a launch needs that isn't in the version json
+public class InstalledVersionRegistry {
+
+    private static final int FORMAT_VERSION = 2;
+
+    private final CoreLogger logger;
+    private final DataController dataController;
+    private final Path registryFile;
+    private @Nullable JsonObject versions;
+
+    public InstalledVersionRegistry(CoreLogger logger, DataController dataController){
+        this.logger = logger;
+        this.dataController = dataController;
+        this.registryFile = dataController.getVersionsPath().resolve("installed.json");
+    }
+
+    public synchronized boolean isInstalled(String version, @Nullable Loader loader){
+        return getRecord(version, loader).isPresent();
+    }
+
+    //Hydrates the version from disk only, returns false when anything recorded is missing or changed
+    public synchronized boolean restore(MinecraftVersion minecraftVersion){
+        String version = minecraftVersion.getVersion();
+        Loader loader = minecraftVersion.getLoader();
+        Optional<JsonObject> recordOpt = getRecord(version, loader);
+        if (recordOpt.isEmpty()) return false;
+        JsonObject record = recordOpt.get();
+        Path versionDataFile = getVersionDataFile(version);
+        if (!matchesStamp(record, versionDataFile) || !isRuntimeInstalled(record.get("runtime").getAsString())
+                || !Files.exists(versionDataFile.resolveSibling(version + ".jar")) || !matchesFiles(record.getAsJsonObject("files"))) {
+            logger.info("Installed version " + version + " changed on disk, it will be reinstalled.");
+            return false;
+        }
+        minecraftVersion.hydrate(
+                VersionType.valueOf(record.get("type").getAsString()),
+                record.get("mainClass").getAsString(),
+                record.get("assetIndex").getAsString(),
+                record.get("runtime").getAsString(),
+                versionDataFile);
+        if (loader == null) return true;
+        JsonObject loaderState = record.getAsJsonObject("loaders").getAsJsonObject(getLoaderKey(loader));
+        return loader.getInstaller().loadInstalled(logger, minecraftVersion, loaderState);
+    }
+
+    public synchronized void register(MinecraftVersion minecraftVersion){
+        String version = minecraftVersion.getVersion();
+        Path versionDataFile = getVersionDataFile(version);
+        JsonObject versionData = minecraftVersion.getVersionData();
+        JsonObject record = getVersions().has(version) ? getVersions().getAsJsonObject(version) : new JsonObject();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(versionDataFile, BasicFileAttributes.class);
+            record.addProperty("size", attributes.size());
+            record.addProperty("modified", attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS));
+        } catch (IOException e) {
+            logger.error("Error registering installed version " + version + ".", e);
+            return;
+        }
+        JsonObject files = new JsonObject();
+        try {
+            stampInstalledFiles(minecraftVersion, files);
+        } catch (IOException e) {
+            logger.error("Error registering installed version " + version + ".", e);
+            return;
+        }
+        record.add("files", files);
+        record.addProperty("type", minecraftVersion.getVersionType().name());
+        record.addProperty("mainClass", versionData.get("mainClass").getAsString());
+        record.addProperty("assetIndex", minecraftVersion.getAssetIndexId());
+        record.addProperty("runtime", minecraftVersion.getRuntimeComponent());
+        if (!record.has("loaders")) record.add("loaders", new JsonObject());
+        Loader loader = minecraftVersion.getLoader();
+        if (loader != null) {
+            LoaderInstaller installer = loader.getInstaller();
+            record.getAsJsonObject("loaders").add(getLoaderKey(loader), installer.saveState());
+        }
+        getVersions().add(version, record);
+        save();
+    }
+
+    public synchronized void unregister(String version){
+        if (getVersions().remove(version) != null) save();
+    }
+
+    private Optional<JsonObject> getRecord(String version, @Nullable Loader loader){
+        JsonElement record = getVersions().get(version);
+        if (record == null || !record.isJsonObject()) return Optional.empty();
+        JsonObject recordObject = record.getAsJsonObject();
+        if (loader != null && !recordObject.getAsJsonObject("loaders").has(getLoaderKey(loader))) return Optional.empty();
+        return Optional.of(recordObject);
+    }
+
+    private boolean matchesStamp(JsonObject record, Path versionDataFile){
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(versionDataFile, BasicFileAttributes.class);
+            return attributes.size() == record.get("size").getAsLong()
+                    && attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS) == record.get("modified").getAsLong();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    //Libraries, extracted natives and asset index of the vanilla install, keyed by their path inside the data folder
+    private void stampInstalledFiles(MinecraftVersion minecraftVersion, JsonObject files) throws IOException {
+        for (JsonElement library : minecraftVersion.getLibraries()) {
+            JsonObject downloads = library.getAsJsonObject().getAsJsonObject("downloads");
+            if (downloads == null) continue;
+            for (Map.Entry<String, JsonElement> downloadEntry : downloads.entrySet()) {
+                Path file = dataController.getLibrariesPath().resolve(downloadEntry.getValue().getAsJsonObject().get("path").getAsString());
+                //Artifacts ruled out for this platform are never downloaded
+                if (Files.exists(file)) stampFile(file, files);
+            }
+        }
+        Path nativesFolder = dataController.getNativesPath().resolve(minecraftVersion.getVersion());
+        if (Files.isDirectory(nativesFolder)) {
+            try (Stream<Path> natives = Files.list(nativesFolder)) {
+                for (Path file : natives.filter(Files::isRegularFile).toList()) {
+                    stampFile(file, files);
+                }
+            }
+        }
+        stampFile(dataController.getAssetsPath().resolve("indexes").resolve(minecraftVersion.getAssetIndexId() + ".json"), files);
+    }
+
+    private void stampFile(Path file, JsonObject files) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        JsonObject stamp = new JsonObject();
+        stamp.addProperty("size", attributes.size());
+        stamp.addProperty("modified", attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS));
+        files.add(dataController.getDataPath().relativize(file).toString(), stamp);
+    }
+
+    private boolean matchesFiles(@Nullable JsonObject files){
+        if (files == null) return false;
+        for (Map.Entry<String, JsonElement> fileEntry : files.entrySet()) {
+            if (!matchesStamp(fileEntry.getValue().getAsJsonObject(), dataController.getDataPath().resolve(fileEntry.getKey()))) return false;
+        }
+        return true;
+    }
+
+    private boolean isRuntimeInstalled(String runtime){
+        Path bin = dataController.getRuntimesPath().resolve(runtime).resolve("bin");
+        return Files.exists(bin.resolve("java")) || Files.exists(bin.resolve("java.exe"));
+    }
+
+    private Path getVersionDataFile(String version){
+        return dataController.getVersionsPath().resolve(version).resolve(version + ".json");
+    }
+
+    private String getLoaderKey(Loader loader){
+        return loader.getId() + ":" + loader.getVersion();
+    }
+
+    private JsonObject getVersions(){
+        if (versions != null) return versions;
+        versions = new JsonObject();
+        if (!Files.exists(registryFile)) return versions;
+        try {
+            JsonObject data = FetchingUtils.loadJson(registryFile);
+            if (data != null && data.get("version").getAsInt() == FORMAT_VERSION) {
+                versions = data.getAsJsonObject("versions");
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error loading installed versions registry " + registryFile + ", starting empty.", e);
+        }
+        return versions;
+    }
+
+    private void save(){
+        JsonObject data = new JsonObject();
+        data.addProperty("version", FORMAT_VERSION);
+        data.add("versions", getVersions());
+        try {
+            Files.createDirectories(registryFile.getParent());
+            Path tempFile = registryFile.resolveSibling(registryFile.getFileName() + ".tmp");
+            Files.writeString(tempFile, data.toString());
+            try {
+                Files.move(tempFile, registryFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, registryFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.error("Error saving installed versions registry " + registryFile + ".", e);
+        }
+    }
+
+}
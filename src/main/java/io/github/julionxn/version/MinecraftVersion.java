@@ -3,35 +3,63 @@ package io.github.julionxn.version;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import io.github.julionxn.CoreLogger;
 import io.github.julionxn.ProgressCallback;
+import io.github.julionxn.cache.MetadataCache;
 import io.github.julionxn.system.Natives;
 import io.github.julionxn.system.SystemController;
 import io.github.julionxn.utils.FetchingUtils;
+import io.github.julionxn.utils.HttpTransport;
 import io.github.julionxn.version.data.AssetIndexInfo;
+import io.github.julionxn.version.data.CompactAssetIndex;
+import io.github.julionxn.version.data.MetadataFootprint;
 import io.github.julionxn.version.data.RuntimeComponentInfo;
+import io.github.julionxn.version.data.VersionEntry;
 import io.github.julionxn.version.data.VersionJarInfo;
 import io.github.julionxn.version.loaders.Loader;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MinecraftVersion {
 
-    private static final String VERSIONS_MANIFEST_URL = "https://launchermeta.mojang.com/mc/game/version_manifest.json";
     private static final String RUNTIMES_MANIFEST_URL = "https://launchermeta.mojang.com/v1/products/java-runtime/2ec0cc96c44e5a76b9c8b7c39df7210883d12871/all.json";
+    private static final List<String> PREWARMED_HOSTS = List.of(
+            "https://resources.download.minecraft.net/",
+            "https://libraries.minecraft.net/",
+            "https://piston-data.mojang.com/");
+    //Runtimes manifest, version manifest, version data, asset index info and runtime component info
+    private static final int METADATA_STAGES = 5;
+    private static @Nullable VersionCatalog sharedCatalog;
     private final String version;
     private final @Nullable Loader loader;
     private VersionType versionType;
-    private JsonObject versionData;
-    private AssetIndexInfo assetIndexInfo;
-    private JsonArray libraries;
+    //Held strongly while installing, afterwards only softly and reloaded from the installed version json
+    private @Nullable JsonObject versionData;
+    private SoftReference<JsonObject> releasedVersionData = new SoftReference<>(null);
+    private @Nullable Path versionDataFile;
+    private @Nullable AssetIndexInfo assetIndexInfo;
+    private String assetIndexId;
     private VersionJarInfo versionJarInfo;
-    private RuntimeComponentInfo runtimeComponentInfo;
+    private @Nullable RuntimeComponentInfo runtimeComponentInfo;
+    private String runtimeComponent;
     private String mainClass;
+    private @Nullable MetadataCache metadataCache;
 
     public MinecraftVersion(String version, @Nullable Loader loader){
         this.version = version;
@@ -47,74 +75,76 @@ public class MinecraftVersion {
     }
 
     public boolean loadMetadata(CoreLogger logger, SystemController systemController, ProgressCallback callback){
+        return loadMetadata(logger, systemController, getSharedCatalog(logger), null, callback);
+    }
+
+    //Used by the loads that don't pass a catalog, so the parsed manifest index is kept between them
+    private static synchronized VersionCatalog getSharedCatalog(CoreLogger logger){
+        if (sharedCatalog == null) sharedCatalog = new VersionCatalog(logger, null);
+        return sharedCatalog;
+    }
+
+    public boolean loadMetadata(CoreLogger logger, SystemController systemController, VersionCatalog catalog, @Nullable MetadataCache metadataCache, ProgressCallback callback){
+        this.metadataCache = metadataCache;
         String status = "Loading Version Metadata";
         callback.onProgress(status, 0);
-        //Version manifest
-        Optional<String> versionManifestUrlOpt = fetchVersionManifestUrl(logger);
-        if (versionManifestUrlOpt.isEmpty()) return false;
-        String versionManifestUrl = versionManifestUrlOpt.get();
-        callback.onProgress(status, 1/6f);
-        //Version data
-        Optional<JsonObject> versionDataOpt = fetchVersionData(logger, versionManifestUrl);
-        if (versionDataOpt.isEmpty()) return false;
-        this.versionData = versionDataOpt.get();
-        setMainClass(versionData.get("mainClass").getAsString());
-        callback.onProgress(status, 2/6f);
-        //Asset Index Info
-        Optional<AssetIndexInfo> infoOpt = fetchAssetIndexInfo(logger, this.versionData);
-        if (infoOpt.isEmpty()) return false;
-        this.assetIndexInfo = infoOpt.get();
-        callback.onProgress(status, 3/6f);
-        //Libraries
-        this.libraries = this.versionData.getAsJsonArray("libraries");
-        callback.onProgress(status, 4/6f);
+        //Open connections to the download hosts while the metadata is still being resolved
+        if (metadataCache == null || !metadataCache.isOffline()) {
+            PREWARMED_HOSTS.forEach(host -> HttpTransport.shared().preconnect(URI.create(host)));
+        }
+        AtomicInteger stagesDone = new AtomicInteger();
+        Runnable stageDone = () -> callback.onProgress(status, (float) stagesDone.incrementAndGet() / METADATA_STAGES);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            //The runtimes manifest doesn't depend on the version, so it is fetched alongside the version manifest
+            CompletableFuture<Optional<JsonObject>> runtimesDataFuture = CompletableFuture
+                    .supplyAsync(() -> fetchRuntimesData(logger, systemController.getNatives()), executor)
+                    .whenComplete((result, error) -> stageDone.run());
+            CompletableFuture<Optional<JsonObject>> versionDataFuture = CompletableFuture
+                    .supplyAsync(() -> fetchVersionManifestUrl(logger, catalog), executor)
+                    .whenComplete((result, error) -> stageDone.run())
+                    .thenApplyAsync(urlOpt -> urlOpt.flatMap(url -> fetchVersionData(logger, url)), executor)
+                    .whenComplete((result, error) -> stageDone.run());
+            //Both depend only on the version data, so they start as soon as it arrives
+            CompletableFuture<Optional<AssetIndexInfo>> assetIndexFuture = versionDataFuture
+                    .thenApplyAsync(dataOpt -> dataOpt.flatMap(data -> fetchAssetIndexInfo(logger, data)), executor)
+                    .whenComplete((result, error) -> stageDone.run());
+            CompletableFuture<Optional<RuntimeComponentInfo>> runtimeInfoFuture = versionDataFuture
+                    .thenCombineAsync(runtimesDataFuture, (dataOpt, runtimesOpt) -> {
+                        if (dataOpt.isEmpty() || runtimesOpt.isEmpty()) return Optional.<RuntimeComponentInfo>empty();
+                        return fetchRuntimeComponentInfo(logger, dataOpt.get(), runtimesOpt.get());
+                    }, executor)
+                    .whenComplete((result, error) -> stageDone.run());
+            Optional<JsonObject> versionDataOpt = versionDataFuture.join();
+            Optional<AssetIndexInfo> infoOpt = assetIndexFuture.join();
+            Optional<RuntimeComponentInfo> runtimeInfoOpt = runtimeInfoFuture.join();
+            if (versionDataOpt.isEmpty() || infoOpt.isEmpty() || runtimeInfoOpt.isEmpty()) return false;
+            this.versionData = versionDataOpt.get();
+            setMainClass(versionData.get("mainClass").getAsString());
+            this.assetIndexInfo = infoOpt.get();
+            this.assetIndexId = assetIndexInfo.id();
+            this.runtimeComponentInfo = runtimeInfoOpt.get();
+            this.runtimeComponent = runtimeComponentInfo.version();
+        } catch (CompletionException e) {
+            logger.error("Error loading metadata of version " + version + ".", e.getCause());
+            return false;
+        }
         //Version Jar Info
         Optional<VersionJarInfo> jarInfoOpt = fetchVersionJarInfo(logger, this.versionData);
         if (jarInfoOpt.isEmpty()) return false;
         this.versionJarInfo = jarInfoOpt.get();
-        callback.onProgress(status, 5/6f);
-        //Runtime Component Info
-        Optional<RuntimeComponentInfo> runtimeInfoOpt = fetchRuntimeComponentInfo(logger, this.versionData, systemController.getNatives());
-        if (runtimeInfoOpt.isEmpty()) return false;
-        this.runtimeComponentInfo = runtimeInfoOpt.get();
         callback.onProgress(status, 1);
         return true;
     }
 
-    private Optional<String> fetchVersionManifestUrl(CoreLogger logger){
-        Optional<URL> versionsManifestOpt = FetchingUtils.getURL(VERSIONS_MANIFEST_URL);
-        if (versionsManifestOpt.isEmpty()) {
-            logger.error("Error trying to get URL from MalformedURL: " + VERSIONS_MANIFEST_URL);
+    private Optional<String> fetchVersionManifestUrl(CoreLogger logger, VersionCatalog catalog){
+        Optional<VersionEntry> entryOpt = catalog.findOrRefresh(this.version);
+        if (entryOpt.isEmpty()) {
+            logger.error("Version " + this.version + " not found in the version manifest.");
             return Optional.empty();
         }
-        URL versionManifestUrl = versionsManifestOpt.get();
-        JsonObject versionManifestData;
-        try {
-            Optional<JsonObject> versionManifestDataOpt = FetchingUtils.fetchJsonData(versionManifestUrl);
-            if (versionManifestDataOpt.isEmpty()) {
-                logger.error("Bad RespondeCode from " + versionManifestUrl);
-                return Optional.empty();
-            }
-            versionManifestData = versionManifestDataOpt.get();
-        } catch (IOException e) {
-            logger.error("Error loading Json RuntimesData from " + versionManifestUrl, e);
-            return Optional.empty();
-        }
-        JsonArray versions = versionManifestData.getAsJsonArray("versions");
-        for (JsonElement jsonElement : versions) {
-            JsonObject versionData = jsonElement.getAsJsonObject();
-            String versionId = versionData.get("id").getAsString();
-            if (!versionId.equals(this.version)) continue;
-            String url = versionData.get("url").getAsString();
-            String type = versionData.get("type").getAsString();
-            if (type.equals("snapshot")) {
-                versionType = VersionType.SNAPSHOT;
-            } else {
-                versionType = VersionType.RELEASE;
-            }
-            return Optional.of(url);
-        }
-        return Optional.empty();
+        VersionEntry entry = entryOpt.get();
+        versionType = entry.versionType();
+        return Optional.of(entry.url());
     }
 
     private Optional<JsonObject> fetchVersionData(CoreLogger logger, String versionManifestUrl){
@@ -125,7 +155,7 @@ public class MinecraftVersion {
         }
         URL versionUrl = versionUrlOpt.get();
         try {
-            Optional<JsonObject> versionDataOpt = FetchingUtils.fetchJsonData(versionUrl);
+            Optional<JsonObject> versionDataOpt = fetchJson(versionUrl);
             if (versionDataOpt.isEmpty()) {
                 logger.error("Bad RespondeCode from " + versionUrl);
                 return Optional.empty();
@@ -149,13 +179,13 @@ public class MinecraftVersion {
         }
         URL assetIndexUrl = assetIndexUrlOpt.get();
         try {
-            Optional<JsonObject> assetIndexDataOpt = FetchingUtils.fetchJsonData(assetIndexUrl);
-            if (assetIndexDataOpt.isEmpty()) {
+            //Parsed straight into the packed representation, the JSON tree is never built
+            Optional<CompactAssetIndex> assetIndexOpt = fetchParsed(assetIndexUrl, inputStream -> Optional.of(CompactAssetIndex.read(inputStream)));
+            if (assetIndexOpt.isEmpty()) {
                 logger.error("Bad RespondeCode from " + assetIndexUrl);
                 return Optional.empty();
             }
-            JsonObject assetIndexData = assetIndexDataOpt.get();
-            AssetIndexInfo info = new AssetIndexInfo(id, assetIndexData);
+            AssetIndexInfo info = new AssetIndexInfo(id, assetIndexOpt.get());
             return Optional.of(info);
         } catch (IOException e) {
             logger.error("Error loading Json AssetIndexData from " + assetIndexUrl, e);
@@ -179,29 +209,31 @@ public class MinecraftVersion {
         return Optional.of(info);
     }
 
-    private Optional<RuntimeComponentInfo> fetchRuntimeComponentInfo(CoreLogger logger, JsonObject versionData, Natives natives){
-        JsonObject javaVersion = versionData.getAsJsonObject("javaVersion");
-        String componentVersion = javaVersion.get("component").getAsString();
+    //Only the components of this architecture are read from all.json
+    private Optional<JsonObject> fetchRuntimesData(CoreLogger logger, Natives natives){
         Optional<URL> runtimesUrlOpt = FetchingUtils.getURL(RUNTIMES_MANIFEST_URL);
         if (runtimesUrlOpt.isEmpty()) {
             logger.error("Error trying to get URL from MalformedURL: " + RUNTIMES_MANIFEST_URL);
             return Optional.empty();
         }
         URL runtimesUrl = runtimesUrlOpt.get();
-        JsonObject runtimesData;
+        String nativesString = Natives.getNativesString(natives);
         try {
-            Optional<JsonObject> runtimesDataOpt = FetchingUtils.fetchJsonData(runtimesUrl);
-            if (runtimesDataOpt.isEmpty()) {
-                logger.error("Bad RespondeCode from " + runtimesUrl);
+            Optional<JsonElement> archComponentsOpt = fetchJsonSubtree(runtimesUrl, nativesString);
+            if (archComponentsOpt.isEmpty() || !archComponentsOpt.get().isJsonObject()) {
+                logger.error("No runtimes for " + nativesString + " in " + runtimesUrl);
                 return Optional.empty();
             }
-            runtimesData = runtimesDataOpt.get();
+            return Optional.of(archComponentsOpt.get().getAsJsonObject());
         } catch (IOException e) {
             logger.error("Error loading Json RuntimesData from " + runtimesUrl, e);
             return Optional.empty();
         }
-        String nativesString = Natives.getNativesString(natives);
-        JsonObject archComponents = runtimesData.getAsJsonObject(nativesString);
+    }
+
+    private Optional<RuntimeComponentInfo> fetchRuntimeComponentInfo(CoreLogger logger, JsonObject versionData, JsonObject archComponents){
+        JsonObject javaVersion = versionData.getAsJsonObject("javaVersion");
+        String componentVersion = javaVersion.get("component").getAsString();
         JsonObject component = archComponents.getAsJsonArray(componentVersion).get(0).getAsJsonObject();
         JsonObject componentManifest = component.getAsJsonObject("manifest");
         String componentUrlStr = componentManifest.get("url").getAsString();
@@ -214,20 +246,35 @@ public class MinecraftVersion {
         }
         JsonObject componentData;
         try {
-            Optional<JsonObject> componentDataOpt = FetchingUtils.fetchJsonData(componentURL);
+            Optional<JsonObject> componentDataOpt = fetchJson(componentURL);
             if (componentDataOpt.isEmpty()) {
                 logger.error("Bad RespondeCode from " + componentURL);
                 return Optional.empty();
             }
             componentData = componentDataOpt.get();
         } catch (IOException e) {
-            logger.error("Error loading Json ComponentData from " + runtimesUrl, e);
+            logger.error("Error loading Json ComponentData from " + componentURL, e);
             return Optional.empty();
         }
         RuntimeComponentInfo info = new RuntimeComponentInfo(componentVersion, componentData);
         return Optional.of(info);
     }
 
+    private Optional<JsonObject> fetchJson(URL url) throws IOException {
+        if (metadataCache == null) return FetchingUtils.fetchJsonData(url);
+        return metadataCache.fetchJson(url);
+    }
+
+    private Optional<JsonElement> fetchJsonSubtree(URL url, String... path) throws IOException {
+        if (metadataCache == null) return FetchingUtils.fetchJsonSubtree(url, path);
+        return metadataCache.fetchJsonSubtree(url, path);
+    }
+
+    private <T> Optional<T> fetchParsed(URL url, FetchingUtils.StreamParser<T> parser) throws IOException {
+        if (metadataCache == null) return FetchingUtils.fetchParsed(url, parser);
+        return metadataCache.fetchParsed(url, parser);
+    }
+
     public String getVersion(){
         return version;
     }
@@ -236,26 +283,107 @@ public class MinecraftVersion {
         return versionType;
     }
 
-    public JsonObject getVersionData(){
-        return versionData;
+    public synchronized JsonObject getVersionData(){
+        if (versionData != null) return versionData;
+        JsonObject released = releasedVersionData.get();
+        if (released != null || versionDataFile == null) return released;
+        try {
+            released = FetchingUtils.loadJson(versionDataFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reloading version data from " + versionDataFile, e);
+        }
+        releasedVersionData = new SoftReference<>(released);
+        return released;
     }
 
-    public AssetIndexInfo getAssetIndexInfo() {
-        return assetIndexInfo;
+    //Restores an installed version from local data only, the version json is read when first needed
+    public synchronized void hydrate(VersionType versionType, String mainClass, String assetIndexId, String runtimeComponent, Path versionDataFile){
+        this.versionType = versionType;
+        this.mainClass = mainClass;
+        this.assetIndexId = assetIndexId;
+        this.runtimeComponent = runtimeComponent;
+        this.versionDataFile = versionDataFile;
+        this.versionData = null;
+        this.releasedVersionData = new SoftReference<>(null);
+    }
+
+    //Drops everything only the installer reads, launch data is reloaded from the installed version json on demand
+    public synchronized void releaseInstallMetadata(Path versionDataFile){
+        if (versionData == null) return;
+        this.versionDataFile = versionDataFile;
+        this.releasedVersionData = new SoftReference<>(versionData);
+        this.versionData = null;
+        this.assetIndexInfo = null;
+        this.runtimeComponentInfo = null;
+    }
+
+    public synchronized boolean hasInstallMetadata(){
+        return versionData != null;
+    }
+
+    public synchronized MetadataFootprint getMemoryFootprint(){
+        JsonObject data = versionData != null ? versionData : releasedVersionData.get();
+        return new MetadataFootprint(
+                data == null ? 0 : estimateJsonSize(data),
+                versionData != null,
+                assetIndexInfo == null ? 0 : assetIndexInfo.index().getFootprint(),
+                runtimeComponentInfo == null ? 0 : estimateJsonSize(runtimeComponentInfo.runtimeData()));
+    }
+
+    //Rough retained size of a Gson tree: tree map nodes, element wrappers and string payloads
+    private static long estimateJsonSize(JsonElement element){
+        if (element.isJsonObject()) {
+            long size = 48;
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                size += 40 + estimateStringSize(entry.getKey()) + estimateJsonSize(entry.getValue());
+            }
+            return size;
+        }
+        if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            long size = 40 + 4L * array.size();
+            for (JsonElement child : array) {
+                size += estimateJsonSize(child);
+            }
+            return size;
+        }
+        if (element.isJsonPrimitive()) {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            return 16 + (primitive.isString() ? estimateStringSize(primitive.getAsString()) : 16);
+        }
+        return 16;
+    }
+
+    private static long estimateStringSize(String value){
+        return 40 + value.length();
     }
 
     public JsonArray getLibraries() {
-        return libraries;
+        return getVersionData().getAsJsonArray("libraries");
+    }
+
+    @Nullable
+    public synchronized AssetIndexInfo getAssetIndexInfo() {
+        return assetIndexInfo;
+    }
+
+    public String getAssetIndexId(){
+        return assetIndexId;
     }
 
     public VersionJarInfo getVersionJarInfo() {
         return versionJarInfo;
     }
 
-    public RuntimeComponentInfo getRuntimeComponentInfo() {
+    @Nullable
+    public synchronized RuntimeComponentInfo getRuntimeComponentInfo() {
         return runtimeComponentInfo;
     }
 
+    public String getRuntimeComponent(){
+        return runtimeComponent;
+    }
+
     @Nullable
     public Loader getLoader() {
         return loader;
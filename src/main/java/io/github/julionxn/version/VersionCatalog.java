@@ -0,0 +1,242 @@
+package io.github.julionxn.version;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import io.github.julionxn.CoreLogger;
+import io.github.julionxn.cache.MetadataCache;
+import io.github.julionxn.utils.FetchingUtils;
+import io.github.julionxn.version.data.VersionEntry;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+public class VersionCatalog implements AutoCloseable {
+
+    public static final String VERSIONS_MANIFEST_URL = "https://launchermeta.mojang.com/mc/game/version_manifest.json";
+
+    private final CoreLogger logger;
+    private final @Nullable MetadataCache metadataCache;
+    private volatile @Nullable Snapshot snapshot;
+    private @Nullable ScheduledExecutorService refreshExecutor;
+    private @Nullable ScheduledFuture<?> refreshTask;
+
+    public VersionCatalog(CoreLogger logger, @Nullable MetadataCache metadataCache){
+        this.logger = logger;
+        this.metadataCache = metadataCache;
+    }
+
+    public boolean refresh(){
+        Optional<URL> manifestUrlOpt = FetchingUtils.getURL(VERSIONS_MANIFEST_URL);
+        if (manifestUrlOpt.isEmpty()) {
+            logger.error("Error trying to get URL from MalformedURL: " + VERSIONS_MANIFEST_URL);
+            return false;
+        }
+        URL manifestUrl = manifestUrlOpt.get();
+        try {
+            Optional<Snapshot> snapshotOpt = metadataCache == null
+                    ? FetchingUtils.fetchParsed(manifestUrl, VersionCatalog::parse)
+                    : metadataCache.fetchParsed(manifestUrl, VersionCatalog::parse);
+            if (snapshotOpt.isEmpty()) {
+                logger.error("Bad RespondeCode from " + manifestUrl);
+                return false;
+            }
+            this.snapshot = snapshotOpt.get();
+            return true;
+        } catch (IOException e) {
+            logger.error("Error loading Json VersionManifest from " + manifestUrl, e);
+            return false;
+        }
+    }
+
+    public synchronized void startAutoRefresh(Duration period){
+        stopAutoRefresh();
+        if (refreshExecutor == null) {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "version-catalog-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long millis = period.toMillis();
+        refreshTask = refreshExecutor.scheduleWithFixedDelay(this::refresh, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopAutoRefresh(){
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+            refreshTask = null;
+        }
+    }
+
+    public Optional<VersionEntry> find(String id){
+        return getSnapshot().map(current -> current.byId().get(id));
+    }
+
+    //A miss may just be a version newer than the loaded manifest, so it refreshes once, unless this call just loaded it
+    public Optional<VersionEntry> findOrRefresh(String id){
+        LoadedSnapshot loaded = loadSnapshot();
+        Optional<VersionEntry> entry = Optional.ofNullable(loaded.snapshot()).map(current -> current.byId().get(id));
+        if (entry.isPresent() || loaded.refreshed()) return entry;
+        return refresh() ? find(id) : Optional.empty();
+    }
+
+    public Optional<VersionEntry> getLatestRelease(){
+        return getSnapshot().flatMap(current -> Optional.ofNullable(current.latestRelease()));
+    }
+
+    public Optional<VersionEntry> getLatestSnapshot(){
+        return getSnapshot().flatMap(current -> Optional.ofNullable(current.latestSnapshot()));
+    }
+
+    //Every version, newest release time first
+    public List<VersionEntry> getVersions(){
+        return getSnapshot().map(Snapshot::ordered).orElse(List.of());
+    }
+
+    public List<VersionEntry> list(String type, int offset, int limit){
+        return page(getSnapshot().map(current -> current.byType().getOrDefault(type, List.of())).orElse(List.of()), offset, limit);
+    }
+
+    public List<VersionEntry> list(Predicate<VersionEntry> filter, int offset, int limit){
+        List<VersionEntry> matches = new ArrayList<>();
+        int skipped = 0;
+        for (VersionEntry entry : getVersions()) {
+            if (matches.size() >= limit) break;
+            if (!filter.test(entry)) continue;
+            if (skipped++ < offset) continue;
+            matches.add(entry);
+        }
+        return matches;
+    }
+
+    public List<VersionEntry> listReleases(int offset, int limit){
+        return list("release", offset, limit);
+    }
+
+    public List<VersionEntry> listSnapshots(int offset, int limit){
+        return list("snapshot", offset, limit);
+    }
+
+    private List<VersionEntry> page(List<VersionEntry> entries, int offset, int limit){
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("Offset and limit must be positive.");
+        if (offset >= entries.size()) return List.of();
+        return entries.subList(offset, (int) Math.min(entries.size(), (long) offset + limit));
+    }
+
+    private Optional<Snapshot> getSnapshot(){
+        return Optional.ofNullable(loadSnapshot().snapshot());
+    }
+
+    private LoadedSnapshot loadSnapshot(){
+        Snapshot current = snapshot;
+        if (current != null) return new LoadedSnapshot(current, false);
+        synchronized (this) {
+            if (snapshot != null) return new LoadedSnapshot(snapshot, false);
+            refresh();
+            return new LoadedSnapshot(snapshot, true);
+        }
+    }
+
+    private static Optional<Snapshot> parse(InputStream inputStream) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        List<VersionEntry> entries = new ArrayList<>();
+        String latestRelease = null;
+        String latestSnapshot = null;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "latest" -> {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "release" -> latestRelease = reader.nextString();
+                                case "snapshot" -> latestSnapshot = reader.nextString();
+                                default -> reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    case "versions" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            entries.add(readEntry(reader));
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (JsonParseException | IllegalStateException | DateTimeParseException e) {
+            throw new IOException("Malformed version manifest.", e);
+        }
+        return Optional.of(Snapshot.of(entries, latestRelease, latestSnapshot));
+    }
+
+    private static VersionEntry readEntry(JsonReader reader) throws IOException {
+        String id = null, type = null, url = null, time = null, releaseTime = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> id = reader.nextString();
+                case "type" -> type = reader.nextString();
+                case "url" -> url = reader.nextString();
+                case "time" -> time = reader.nextString();
+                case "releaseTime" -> releaseTime = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (id == null || type == null || url == null || releaseTime == null) {
+            throw new IOException("Incomplete version manifest entry " + id + ".");
+        }
+        Instant released = Instant.parse(releaseTime);
+        return new VersionEntry(id, type, url, time == null ? released : Instant.parse(time), released);
+    }
+
+    @Override
+    public synchronized void close() {
+        stopAutoRefresh();
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+            refreshExecutor = null;
+        }
+    }
+
+    private record LoadedSnapshot(@Nullable Snapshot snapshot, boolean refreshed) {}
+
+    private record Snapshot(Map<String, VersionEntry> byId, List<VersionEntry> ordered, Map<String, List<VersionEntry>> byType,
+                            @Nullable VersionEntry latestRelease, @Nullable VersionEntry latestSnapshot) {
+
+        private static Snapshot of(List<VersionEntry> entries, @Nullable String latestRelease, @Nullable String latestSnapshot){
+            List<VersionEntry> ordered = new ArrayList<>(entries);
+            ordered.sort(VersionEntry.NEWEST_FIRST);
+            Map<String, VersionEntry> byId = new HashMap<>(ordered.size() * 2);
+            Map<String, List<VersionEntry>> byType = new HashMap<>();
+            for (VersionEntry entry : ordered) {
+                byId.putIfAbsent(entry.id(), entry);
+                byType.computeIfAbsent(entry.type(), key -> new ArrayList<>()).add(entry);
+            }
+            byType.replaceAll((type, list) -> List.copyOf(list));
+            return new Snapshot(Map.copyOf(byId), List.copyOf(ordered), Map.copyOf(byType),
+                    latestRelease == null ? null : byId.get(latestRelease),
+                    latestSnapshot == null ? null : byId.get(latestSnapshot));
+        }
+
+    }
+
+}
@@ -2,11 +2,19 @@ package io.github.julionxn.version;
 
 import io.github.julionxn.CoreLogger;
 import io.github.julionxn.ProgressCallback;
+import io.github.julionxn.cache.MetadataCache;
 import io.github.julionxn.data.DataController;
 import io.github.julionxn.system.SystemController;
+import io.github.julionxn.version.installers.DownloadMode;
+import io.github.julionxn.version.installers.DownloadScheduler;
+import io.github.julionxn.version.installers.HostStats;
+import io.github.julionxn.version.installers.InstallPlan;
+import io.github.julionxn.version.installers.RetryPolicy;
 import io.github.julionxn.version.installers.VersionInstaller;
 import io.github.julionxn.version.loaders.Loader;
 
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
 
 public class VersionsController {
@@ -14,11 +22,75 @@ public class VersionsController {
     private final CoreLogger logger;
     private final SystemController systemController;
     private final DataController dataController;
+    private final MetadataCache metadataCache;
+    private final VersionCatalog versionCatalog;
+    private final InstalledVersionRegistry installedVersions;
+    private final DownloadScheduler downloadScheduler;
+    private boolean fullVerify;
+    private long chunkedDownloadThreshold = -1;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    private boolean preferLzma;
 
-    public VersionsController(CoreLogger logger, SystemController systemController, DataController dataController){
+    public VersionsController(CoreLogger logger, SystemController systemController, DataController dataController, MetadataCache metadataCache){
         this.logger = logger;
         this.systemController = systemController;
         this.dataController = dataController;
+        this.metadataCache = metadataCache;
+        this.versionCatalog = new VersionCatalog(logger, metadataCache);
+        this.installedVersions = new InstalledVersionRegistry(logger, dataController);
+        this.downloadScheduler = new DownloadScheduler();
+    }
+
+    public void setDownloadParallelism(int parallelism){
+        downloadScheduler.setParallelism(parallelism);
+    }
+
+    public void setDownloadMode(DownloadMode mode){
+        downloadScheduler.setMode(mode);
+    }
+
+    public void setConnectionLimit(String host, int limit){
+        downloadScheduler.getConcurrencyController().setMaxLimit(host, limit);
+    }
+
+    public Map<String, HostStats> getConnectionStats(){
+        return downloadScheduler.getConcurrencyController().getSnapshot();
+    }
+
+    public void setFullVerify(boolean fullVerify){
+        this.fullVerify = fullVerify;
+    }
+
+    public void setChunkedDownloadThreshold(long bytes){
+        this.chunkedDownloadThreshold = bytes;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy){
+        this.retryPolicy = retryPolicy;
+    }
+
+    public void setPreferLzma(boolean preferLzma){
+        this.preferLzma = preferLzma;
+    }
+
+    public void setOfflineMode(boolean offline){
+        metadataCache.setOffline(offline);
+    }
+
+    public void setManifestTtl(Duration ttl){
+        metadataCache.setTtl(ttl);
+    }
+
+    public InstalledVersionRegistry getInstalledVersions(){
+        return installedVersions;
+    }
+
+    public VersionCatalog getVersionCatalog(){
+        return versionCatalog;
+    }
+
+    public DownloadScheduler getDownloadScheduler(){
+        return downloadScheduler;
     }
 
     public Optional<MinecraftVersion> installVersion(String version, ProgressCallback callback){
@@ -31,15 +103,41 @@ public class VersionsController {
         return installVersion(minecraftVersion, callback);
     }
 
+    public Optional<InstallPlan> planInstall(String version, ProgressCallback callback){
+        return planInstall(new MinecraftVersion(version, null), callback);
+    }
+
+    public Optional<InstallPlan> planInstall(String version, Loader loader, ProgressCallback callback){
+        return planInstall(new MinecraftVersion(version, loader), callback);
+    }
+
+    //Dry run: resolves the metadata and diffs it against the local store without downloading anything
+    public Optional<InstallPlan> planInstall(MinecraftVersion minecraftVersion, ProgressCallback callback){
+        boolean loaded = minecraftVersion.loadMetadata(logger, systemController, versionCatalog, metadataCache, callback);
+        if (!loaded) {
+            logger.error("Error loading metadata of version " + minecraftVersion.getVersion() + ".");
+            return Optional.empty();
+        }
+        InstallPlan plan = createInstaller(minecraftVersion, callback).plan();
+        callback.onProgress("Done", 1f);
+        return Optional.of(plan);
+    }
+
     public Optional<MinecraftVersion> installVersion(MinecraftVersion minecraftVersion, ProgressCallback callback){
-        boolean loaded = minecraftVersion.loadMetadata(logger, systemController, callback);
+        //A verified install launches straight from disk, fullVerify forces the whole install path again
+        if (!fullVerify && installedVersions.restore(minecraftVersion)) {
+            logger.info("Version " + minecraftVersion.getVersion() + " restored from the installed versions registry.");
+            callback.onProgress("Done", 1f);
+            return Optional.of(minecraftVersion);
+        }
+        boolean loaded = minecraftVersion.loadMetadata(logger, systemController, versionCatalog, metadataCache, callback);
         if (loaded){
             logger.info("Metadata of version " + minecraftVersion.getVersion() + " loaded successfully.");
-            VersionInstaller installer = new VersionInstaller(logger, minecraftVersion, systemController, dataController, callback);
-            boolean success = installer.install();
+            boolean success = createInstaller(minecraftVersion, callback).install();
             if (!success){
                 return Optional.empty();
             }
+            installedVersions.register(minecraftVersion);
             logger.info("Version " + minecraftVersion.getVersion() + " installed.");
             return Optional.of(minecraftVersion);
         } else {
@@ -48,4 +146,13 @@ public class VersionsController {
         }
     }
 
+    private VersionInstaller createInstaller(MinecraftVersion minecraftVersion, ProgressCallback callback){
+        VersionInstaller installer = new VersionInstaller(logger, minecraftVersion, systemController, dataController, downloadScheduler, callback);
+        installer.setFullVerify(fullVerify);
+        installer.setChunkedDownloadThreshold(chunkedDownloadThreshold);
+        installer.setRetryPolicy(retryPolicy);
+        installer.setPreferLzma(preferLzma);
+        return installer;
+    }
+
 }
@@ -1,6 +1,4 @@
 package io.github.julionxn.version.data;
 
-import com.google.gson.JsonObject;
-
-public record AssetIndexInfo(String id, JsonObject assetIndexData) {
+public record AssetIndexInfo(String id, CompactAssetIndex index) {
 }
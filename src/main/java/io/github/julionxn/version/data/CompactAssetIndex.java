@@ -0,0 +1,193 @@
+package io.github.julionxn.version.data;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Objects;
+
+//Asset index packed into primitive arrays: entry i has its name at names[i], its SHA-1 at hashes[i * 20] and its size at sizes[i]
+public class CompactAssetIndex {
+
+    public static final int HASH_LENGTH = 20;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final String[] names;
+    private final byte[] hashes;
+    private final int[] sizes;
+    private final int count;
+    private final boolean virtual;
+    private final boolean mapToResources;
+
+    private CompactAssetIndex(String[] names, byte[] hashes, int[] sizes, int count, boolean virtual, boolean mapToResources){
+        this.names = names;
+        this.hashes = hashes;
+        this.sizes = sizes;
+        this.count = count;
+        this.virtual = virtual;
+        this.mapToResources = mapToResources;
+    }
+
+    public static CompactAssetIndex read(InputStream inputStream) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        Builder builder = new Builder();
+        boolean virtual = false;
+        boolean mapToResources = false;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "objects" -> readObjects(reader, builder);
+                    case "virtual" -> virtual = reader.nextBoolean();
+                    case "map_to_resources" -> mapToResources = reader.nextBoolean();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (JsonParseException | IllegalStateException | IllegalArgumentException e) {
+            throw new IOException("Malformed asset index.", e);
+        }
+        return builder.build(virtual, mapToResources);
+    }
+
+    private static void readObjects(JsonReader reader, Builder builder) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            String hash = null;
+            long size = -1;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "hash" -> hash = reader.nextString();
+                    case "size" -> size = reader.nextLong();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (hash == null || hash.length() != HASH_LENGTH * 2 || size < 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid asset index entry " + name + ".");
+            }
+            builder.add(name, hash, (int) size);
+        }
+        reader.endObject();
+    }
+
+    //Writes the index back in the launcher format the game expects under assets/indexes
+    public void write(Path file) throws IOException {
+        try (Writer fileWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             JsonWriter writer = new JsonWriter(fileWriter)) {
+            writer.beginObject();
+            if (virtual) writer.name("virtual").value(true);
+            if (mapToResources) writer.name("map_to_resources").value(true);
+            writer.name("objects").beginObject();
+            for (int i = 0; i < count; i++) {
+                writer.name(names[i]).beginObject()
+                        .name("hash").value(getHash(i))
+                        .name("size").value(sizes[i])
+                        .endObject();
+            }
+            writer.endObject();
+            writer.endObject();
+        }
+    }
+
+    public int size(){
+        return count;
+    }
+
+    public String getName(int index){
+        return names[checkIndex(index)];
+    }
+
+    public String getHash(int index){
+        int offset = checkIndex(index) * HASH_LENGTH;
+        return HEX.formatHex(hashes, offset, offset + HASH_LENGTH);
+    }
+
+    //Compares the packed hashes of two entries in place, no hex string is built
+    public boolean hashEquals(int index, int otherIndex){
+        int offset = checkIndex(index) * HASH_LENGTH;
+        int otherOffset = checkIndex(otherIndex) * HASH_LENGTH;
+        return Arrays.equals(hashes, offset, offset + HASH_LENGTH, hashes, otherOffset, otherOffset + HASH_LENGTH);
+    }
+
+    //SHA-1 bytes are uniformly distributed, the leading four already make a good hash code
+    public int hashCodeAt(int index){
+        int offset = checkIndex(index) * HASH_LENGTH;
+        return (hashes[offset] & 0xFF) << 24 | (hashes[offset + 1] & 0xFF) << 16
+                | (hashes[offset + 2] & 0xFF) << 8 | hashes[offset + 3] & 0xFF;
+    }
+
+    public int getSize(int index){
+        return sizes[checkIndex(index)];
+    }
+
+    public long getTotalSize(){
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += sizes[i];
+        }
+        return total;
+    }
+
+    public boolean isVirtual(){
+        return virtual;
+    }
+
+    public boolean isMapToResources(){
+        return mapToResources;
+    }
+
+    public long getFootprint(){
+        //Arrays only, the interned names are shared between every index that contains them
+        return (long) names.length * Integer.BYTES + hashes.length + (long) sizes.length * Integer.BYTES;
+    }
+
+    private int checkIndex(int index){
+        return Objects.checkIndex(index, count);
+    }
+
+    private static class Builder {
+
+        private String[] names = new String[1024];
+        private byte[] hashes = new byte[1024 * HASH_LENGTH];
+        private int[] sizes = new int[1024];
+        private int count;
+
+        private void add(String name, String hash, int size){
+            if (count == sizes.length) {
+                int capacity = count * 2;
+                names = Arrays.copyOf(names, capacity);
+                hashes = Arrays.copyOf(hashes, capacity * HASH_LENGTH);
+                sizes = Arrays.copyOf(sizes, capacity);
+            }
+            //Asset names repeat across versions, interning keeps a single copy for every loaded index
+            names[count] = name.intern();
+            int offset = count * HASH_LENGTH;
+            for (int i = 0; i < HASH_LENGTH; i++) {
+                hashes[offset + i] = (byte) HexFormat.fromHexDigits(hash, i * 2, i * 2 + 2);
+            }
+            sizes[count] = size;
+            count++;
+        }
+
+        private CompactAssetIndex build(boolean virtual, boolean mapToResources){
+            return new CompactAssetIndex(Arrays.copyOf(names, count),
+                    Arrays.copyOf(hashes, count * HASH_LENGTH),
+                    Arrays.copyOf(sizes, count),
+                    count, virtual, mapToResources);
+        }
+
+    }
+
+}
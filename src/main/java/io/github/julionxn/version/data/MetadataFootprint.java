@@ -0,0 +1,9 @@
+package io.github.julionxn.version.data;
+
+public record MetadataFootprint(long versionDataBytes, boolean versionDataPinned, long assetIndexBytes, long runtimeDataBytes) {
+
+    public long totalBytes(){
+        return versionDataBytes + assetIndexBytes + runtimeDataBytes;
+    }
+
+}
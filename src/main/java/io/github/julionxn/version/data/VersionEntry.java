@@ -0,0 +1,17 @@
+package io.github.julionxn.version.data;
+
+import io.github.julionxn.version.VersionType;
+
+import java.time.Instant;
+import java.util.Comparator;
+
+public record VersionEntry(String id, String type, String url, Instant time, Instant releaseTime) {
+
+    public static final Comparator<VersionEntry> NEWEST_FIRST = Comparator.comparing(VersionEntry::releaseTime).reversed()
+            .thenComparing(VersionEntry::id);
+
+    public VersionType versionType(){
+        return type.equals("snapshot") ? VersionType.SNAPSHOT : VersionType.RELEASE;
+    }
+
+}
@@ -0,0 +1,230 @@
+package io.github.julionxn.version.installers;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrencyController {
+
+    public static final int DEFAULT_INITIAL_LIMIT = 4;
+    public static final int DEFAULT_MAX_LIMIT = 64;
+    private static final int MIN_LIMIT = 1;
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double LATENCY_TOLERANCE = 4;
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final long MIN_DECREASE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+    private final Map<String, Integer> maxLimits = new ConcurrentHashMap<>();
+    private final boolean adaptive;
+    private volatile int initialLimit;
+    private volatile int defaultMaxLimit;
+
+    public ConcurrencyController(){
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MAX_LIMIT, true);
+    }
+
+    public ConcurrencyController(int initialLimit, int defaultMaxLimit, boolean adaptive){
+        this.initialLimit = checkLimit(initialLimit);
+        this.defaultMaxLimit = checkLimit(defaultMaxLimit);
+        this.adaptive = adaptive;
+    }
+
+    public static ConcurrencyController unbounded(){
+        return new ConcurrencyController(Integer.MAX_VALUE, Integer.MAX_VALUE, false);
+    }
+
+    public void setInitialLimit(int limit){
+        this.initialLimit = checkLimit(limit);
+    }
+
+    public void setDefaultMaxLimit(int limit){
+        this.defaultMaxLimit = checkLimit(limit);
+        hosts.forEach((host, state) -> {
+            if (!maxLimits.containsKey(host)) state.setMaxLimit(limit);
+        });
+    }
+
+    public void setMaxLimit(String host, int limit){
+        maxLimits.put(host, checkLimit(limit));
+        HostState state = hosts.get(host);
+        if (state != null) state.setMaxLimit(limit);
+    }
+
+    public int getMaxLimit(String host){
+        return maxLimits.getOrDefault(host, defaultMaxLimit);
+    }
+
+    public Permit acquire(String host) throws InterruptedException {
+        HostState state = hosts.computeIfAbsent(host, key -> {
+            int maxLimit = getMaxLimit(key);
+            return new HostState(Math.min(initialLimit, maxLimit), maxLimit);
+        });
+        state.acquire();
+        return new Permit(state);
+    }
+
+    public Map<String, HostStats> getSnapshot(){
+        Map<String, HostStats> snapshot = new TreeMap<>();
+        hosts.forEach((host, state) -> snapshot.put(host, state.snapshot(host)));
+        return snapshot;
+    }
+
+    private static int checkLimit(int limit){
+        if (limit < MIN_LIMIT) throw new IllegalArgumentException("Concurrency limit must be at least " + MIN_LIMIT + ".");
+        return limit;
+    }
+
+    private class HostState {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+        private final long createdNanos = System.nanoTime();
+        private double limit;
+        private int maxLimit;
+        private int inFlight;
+        private long lastDecreaseNanos = createdNanos - MIN_DECREASE_INTERVAL;
+        private double latencyMillis = -1;
+        private double baselineLatencyMillis = -1;
+        private long bytes;
+        private long successes;
+        private long throttled;
+        private long failures;
+
+        private HostState(int limit, int maxLimit){
+            this.limit = limit;
+            this.maxLimit = maxLimit;
+        }
+
+        private void acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                while (inFlight >= (int) limit) {
+                    available.await();
+                }
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release(int statusCode, boolean timedOut, boolean failed, long responseNanos, long transferredBytes){
+            lock.lock();
+            try {
+                inFlight--;
+                bytes += transferredBytes;
+                if (responseNanos > 0) {
+                    recordLatency(responseNanos / 1_000_000d);
+                }
+                if (timedOut || statusCode == 429 || statusCode >= 500) {
+                    throttled++;
+                    onCongestion();
+                } else if (statusCode >= 200 && statusCode < 300 && !failed) {
+                    successes++;
+                    onSuccess();
+                } else if (statusCode != 0 || failed) {
+                    failures++;
+                }
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void recordLatency(double sampleMillis){
+            latencyMillis = latencyMillis < 0 ? sampleMillis : latencyMillis + EWMA_WEIGHT * (sampleMillis - latencyMillis);
+            if (baselineLatencyMillis < 0 || sampleMillis < baselineLatencyMillis) {
+                baselineLatencyMillis = sampleMillis;
+            }
+        }
+
+        private void onSuccess(){
+            if (!adaptive) return;
+            //Hold the limit while the host answers much slower than its best observed latency
+            if (baselineLatencyMillis > 0 && latencyMillis > baselineLatencyMillis * LATENCY_TOLERANCE) return;
+            //Additive increase: roughly one extra connection per window of successful requests
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+
+        private void onCongestion(){
+            if (!adaptive) return;
+            long now = System.nanoTime();
+            //A burst of errors from the same window only counts as one congestion signal
+            long interval = Math.max(MIN_DECREASE_INTERVAL, (long) (latencyMillis * 1_000_000));
+            if (now - lastDecreaseNanos < interval) return;
+            lastDecreaseNanos = now;
+            limit = Math.max(MIN_LIMIT, limit * DECREASE_FACTOR);
+        }
+
+        private void setMaxLimit(int maxLimit){
+            lock.lock();
+            try {
+                this.maxLimit = maxLimit;
+                this.limit = adaptive ? Math.min(limit, maxLimit) : maxLimit;
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private HostStats snapshot(String host){
+            lock.lock();
+            try {
+                double elapsedSeconds = (System.nanoTime() - createdNanos) / 1_000_000_000d;
+                return new HostStats(host, (int) limit, maxLimit, inFlight,
+                        Math.max(latencyMillis, 0),
+                        elapsedSeconds > 0 ? bytes / elapsedSeconds : 0,
+                        successes, throttled, failures);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+    }
+
+    public static class Permit implements AutoCloseable {
+
+        private final HostState state;
+        private final long startNanos = System.nanoTime();
+        private volatile int statusCode;
+        private volatile long responseNanos;
+        private volatile boolean timedOut;
+        private volatile boolean failed;
+        private volatile long bytes;
+
+        private Permit(HostState state){
+            this.state = state;
+        }
+
+        public void recordResponse(int statusCode){
+            if (responseNanos == 0) {
+                responseNanos = System.nanoTime() - startNanos;
+            }
+            if (this.statusCode == 0 || statusCode == 429 || statusCode >= 500) {
+                this.statusCode = statusCode;
+            }
+        }
+
+        public void recordTimeout(){
+            this.timedOut = true;
+        }
+
+        public void recordFailure(){
+            this.failed = true;
+        }
+
+        public synchronized void recordBytes(long bytes){
+            this.bytes += bytes;
+        }
+
+        @Override
+        public void close() {
+            state.release(statusCode, timedOut, failed, responseNanos, bytes);
+        }
+
+    }
+
+}
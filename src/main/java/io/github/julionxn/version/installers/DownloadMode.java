@@ -0,0 +1,5 @@
+package io.github.julionxn.version.installers;
+
+public enum DownloadMode {
+    POOLED, VIRTUAL_THREADS
+}
@@ -0,0 +1,121 @@
+package io.github.julionxn.version.installers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+import java.util.function.ToLongFunction;
+
+public class DownloadScheduler implements AutoCloseable {
+
+    public static final int DEFAULT_PARALLELISM = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final ForkJoinPool pool;
+    private final ConcurrencyController concurrencyController;
+    private volatile DownloadMode mode = DownloadMode.POOLED;
+
+    public DownloadScheduler(){
+        this(DEFAULT_PARALLELISM);
+    }
+
+    public DownloadScheduler(int parallelism){
+        this(parallelism, new ConcurrencyController());
+    }
+
+    public DownloadScheduler(int parallelism, ConcurrencyController concurrencyController){
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1.");
+        //asyncMode keeps every worker deque FIFO, so forked tasks are taken in submission order
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.concurrencyController = concurrencyController;
+    }
+
+    public int getParallelism(){
+        return pool.getParallelism();
+    }
+
+    //Resizes the pool in place, installs already running keep using it
+    public void setParallelism(int parallelism){
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1.");
+        pool.setParallelism(parallelism);
+    }
+
+    public DownloadMode getMode(){
+        return mode;
+    }
+
+    public void setMode(DownloadMode mode){
+        this.mode = mode;
+    }
+
+    public ConcurrencyController getConcurrencyController(){
+        return concurrencyController;
+    }
+
+    public <E> void execute(Collection<E> items, ToLongFunction<E> weight, Consumer<E> task){
+        List<E> list = items instanceof List<E> itemList ? itemList : new ArrayList<>(items);
+        executeIndexed(list.size(), index -> weight.applyAsLong(list.get(index)), index -> task.accept(list.get(index)));
+    }
+
+    //For items kept in primitive arrays, tasks get the item index instead of an object
+    public void executeIndexed(int count, IntToLongFunction weight, IntConsumer task){
+        int[] ordered = orderByWeight(count, weight);
+        if (mode == DownloadMode.VIRTUAL_THREADS) {
+            executeVirtual(ordered, task);
+        } else {
+            executePooled(ordered, task);
+        }
+    }
+
+    private int[] orderByWeight(int count, IntToLongFunction weight){
+        //Largest first, packed as (weight, index) pairs so the sort stays on primitives
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            long clamped = Math.min(Math.max(weight.applyAsLong(i), 0), Integer.MAX_VALUE);
+            keys[i] = (clamped << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] ordered = new int[count];
+        for (int i = 0; i < count; i++) {
+            ordered[i] = (int) keys[count - 1 - i];
+        }
+        return ordered;
+    }
+
+    private void executeVirtual(int[] ordered, IntConsumer task){
+        //One virtual thread per item, the concurrency controller is what bounds the concurrency
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int index : ordered) {
+                executor.submit(() -> task.accept(index));
+            }
+        }
+    }
+
+    private void executePooled(int[] ordered, IntConsumer task){
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(ordered.length);
+                for (int index : ordered) {
+                    tasks.add(ForkJoinTask.adapt(() -> task.accept(index)).fork());
+                }
+                for (ForkJoinTask<?> forked : tasks) {
+                    forked.quietlyJoin();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+}
@@ -34,6 +34,7 @@ public class FabricInstaller extends LoaderInstaller {
 
     private final List<String> JVMArgs = new ArrayList<>();
     private List<Library> libraries;
+    private String mainClass;
 
     @Override
     public boolean install(CoreLogger logger, MinecraftVersion minecraftVersion, DataController dataController, String osName, Natives natives, ProgressCallback callback) {
@@ -62,11 +63,13 @@ public class FabricInstaller extends LoaderInstaller {
             logger.error("Error trying to get JSON: " + versionDataPath, e);
             return false;
         }
-        minecraftVersion.setMainClass(versionData.get("mainClass").getAsString());
+        mainClass = versionData.get("mainClass").getAsString();
+        minecraftVersion.setMainClass(mainClass);
+        JVMArgs.clear();
         JsonObject args = versionData.getAsJsonObject("arguments");
         JsonArray jvmArgs = args.getAsJsonArray("jvm");
         for (JsonElement jvmArg : jvmArgs) {
-            String arg = jvmArg.getAsString().replace(" ", "");
+            String arg = jvmArg.getAsString();
             JVMArgs.add(arg);
         }
         tempFolder.close().run();
@@ -159,6 +162,47 @@ public class FabricInstaller extends LoaderInstaller {
         }
     }
 
+    @Override
+    public JsonObject saveState() {
+        JsonObject state = new JsonObject();
+        state.addProperty("mainClass", mainClass);
+        JsonArray jvmArgs = new JsonArray();
+        JVMArgs.forEach(jvmArgs::add);
+        state.add("jvmArgs", jvmArgs);
+        JsonArray librariesJson = new JsonArray();
+        for (Library library : libraries) {
+            JsonObject libraryJson = new JsonObject();
+            libraryJson.addProperty("artifact", library.artifact());
+            libraryJson.addProperty("version", library.version());
+            libraryJson.addProperty("path", library.path().toString());
+            librariesJson.add(libraryJson);
+        }
+        state.add("libraries", librariesJson);
+        return state;
+    }
+
+    @Override
+    public boolean loadInstalled(CoreLogger logger, MinecraftVersion minecraftVersion, JsonObject state) {
+        List<Library> installedLibraries = new ArrayList<>();
+        for (JsonElement libraryElement : state.getAsJsonArray("libraries")) {
+            JsonObject libraryJson = libraryElement.getAsJsonObject();
+            Path path = Path.of(libraryJson.get("path").getAsString());
+            if (!Files.exists(path)) {
+                logger.info("Fabric library " + path + " is missing, the loader will be reinstalled.");
+                return false;
+            }
+            installedLibraries.add(new Library(libraryJson.get("artifact").getAsString(), libraryJson.get("version").getAsString(), path));
+        }
+        libraries = installedLibraries;
+        JVMArgs.clear();
+        for (JsonElement jvmArg : state.getAsJsonArray("jvmArgs")) {
+            JVMArgs.add(jvmArg.getAsString());
+        }
+        mainClass = state.get("mainClass").getAsString();
+        minecraftVersion.setMainClass(mainClass);
+        return true;
+    }
+
     @Override
     public List<String> getJVMArgs() {
         return JVMArgs;
@@ -0,0 +1,5 @@
+package io.github.julionxn.version.installers;
+
+public record HostStats(String host, int limit, int maxLimit, int inFlight, double latencyMillis,
+                        double bytesPerSecond, long successes, long throttled, long failures) {
+}
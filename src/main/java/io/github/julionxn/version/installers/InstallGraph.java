@@ -0,0 +1,100 @@
+package io.github.julionxn.version.installers;
+
+import io.github.julionxn.CoreLogger;
+import io.github.julionxn.ProgressCallback;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class InstallGraph {
+
+    private final CoreLogger logger;
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    public InstallGraph(CoreLogger logger){
+        this.logger = logger;
+    }
+
+    public InstallGraph addStep(String name, InstallStep action, String... dependencies){
+        if (steps.containsKey(name)) throw new IllegalArgumentException("Install step " + name + " already exists.");
+        //Dependencies must be added first, which also keeps the graph free of cycles
+        for (String dependency : dependencies) {
+            if (!steps.containsKey(dependency)) {
+                throw new IllegalArgumentException("Install step " + name + " depends on unknown step " + dependency + ".");
+            }
+        }
+        steps.put(name, new Step(name, action, List.of(dependencies)));
+        return this;
+    }
+
+    public boolean run(ProgressCallback callback){
+        GraphProgress progress = new GraphProgress(callback, steps.size());
+        Map<String, CompletableFuture<Boolean>> results = new HashMap<>();
+        //Steps mostly block on the DownloadScheduler, so each one gets a cheap virtual thread
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            int index = 0;
+            for (Step step : steps.values()) {
+                int stepIndex = index++;
+                List<CompletableFuture<Boolean>> dependencies = step.dependencies().stream().map(results::get).toList();
+                CompletableFuture<Boolean> result = CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new))
+                        .thenApplyAsync(ignored -> {
+                            if (!dependencies.stream().allMatch(CompletableFuture::join)) {
+                                logger.error("Skipping install step " + step.name() + ", a dependency failed.");
+                                return false;
+                            }
+                            return runStep(step, (status, value) -> progress.update(stepIndex, status, value));
+                        }, executor);
+                results.put(step.name(), result);
+            }
+            return results.values().stream()
+                    .map(CompletableFuture::join)
+                    .reduce(true, Boolean::logicalAnd);
+        }
+    }
+
+    private boolean runStep(Step step, ProgressCallback progress){
+        try {
+            boolean success = step.action().install(progress);
+            if (!success) logger.error("Install step " + step.name() + " failed.");
+            return success;
+        } catch (RuntimeException e) {
+            logger.error("Install step " + step.name() + " failed.", e);
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    public interface InstallStep {
+        boolean install(ProgressCallback progress);
+    }
+
+    private record Step(String name, InstallStep action, List<String> dependencies) {}
+
+    private static class GraphProgress {
+
+        private final ProgressCallback callback;
+        private final float[] values;
+
+        private GraphProgress(ProgressCallback callback, int steps){
+            this.callback = callback;
+            this.values = new float[steps];
+        }
+
+        //Every step reports its own fraction, the callback sees the average over the whole graph
+        private synchronized void update(int step, String status, float value){
+            values[step] = Math.max(values[step], Math.min(value, 1f));
+            float total = 0;
+            for (float stepValue : values) {
+                total += stepValue;
+            }
+            callback.onProgress(status, values.length == 0 ? 1f : total / values.length);
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package io.github.julionxn.version.installers;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public record InstallPlan(String version, List<PhasePlan> phases, List<PlannedFile> missingFiles, long usableSpace) {
+
+    //Headroom for the version json, natives extraction and the loader, which aren't sized up front
+    public static final long SPACE_MARGIN = 64L * 1024 * 1024;
+
+    public long getMissingBytes(){
+        long bytes = 0;
+        for (PhasePlan phase : phases) {
+            bytes += phase.missingBytes();
+        }
+        return bytes;
+    }
+
+    public int getMissingCount(){
+        return missingFiles.size();
+    }
+
+    public long getRequiredSpace(){
+        return missingFiles.isEmpty() ? 0 : getMissingBytes() + SPACE_MARGIN;
+    }
+
+    public boolean hasEnoughSpace(){
+        return usableSpace < 0 || usableSpace >= getRequiredSpace();
+    }
+
+    public boolean isUpToDate(){
+        return missingFiles.isEmpty();
+    }
+
+    public record PhasePlan(String phase, int total, int missing, long missingBytes) {}
+
+    public record PlannedFile(String phase, Path path, long size) {}
+
+}
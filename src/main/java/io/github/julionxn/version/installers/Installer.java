@@ -1,120 +1,400 @@
 package io.github.julionxn.version.installers;
 
+import io.github.julionxn.data.IntegrityIndex;
 import io.github.julionxn.system.Natives;
+import io.github.julionxn.utils.HttpTransport;
+import io.github.julionxn.utils.LzmaInputStream;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.function.Consumer;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class Installer {
 
-    protected DownloadStatus downloadAndCheckFile(URL url, String hash, int expectedSize, File outputFile, Callable<DownloadStatus> onRedownload){
+    protected static final HexFormat HEX = HexFormat.of();
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CHUNKS = 4;
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes (\\d+)-");
+    //Part files an attempt in this JVM is writing right now
+    private static final Set<Path> ACTIVE_PART_FILES = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong PART_SEQUENCE = new AtomicLong();
+
+    protected ConcurrencyController concurrencyController = ConcurrencyController.unbounded();
+    protected long chunkedDownloadThreshold = -1;
+    protected RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    protected @Nullable IntegrityIndex integrityIndex;
+    protected boolean fullVerify;
+    protected boolean preferLzma;
+
+    protected DownloadStatus downloadAndCheckFile(URL url, String hash, int expectedSize, File outputFile){
         if (outputFile.exists()){
+            if (!fullVerify && integrityIndex != null && integrityIndex.isVerified(outputFile.toPath(), hash)){
+                return DownloadStatus.ALREADY_EXISTS;
+            }
             String fileHash = getSHA1Hash(outputFile);
-            if (!hash.equals(fileHash)){
-                boolean deleted = outputFile.delete();
-                if (deleted) {
-                    try {
-                        return onRedownload.call();
-                    } catch (Exception e) {
-                        return DownloadStatus.ERROR;
-                    }
-                } else {
-                    return DownloadStatus.DELETE_FILE_ERROR;
-                }
+            if (hash.equals(fileHash)){
+                if (integrityIndex != null) integrityIndex.record(outputFile.toPath(), hash);
+                return DownloadStatus.ALREADY_EXISTS;
+            }
+            if (integrityIndex != null) integrityIndex.invalidate(outputFile.toPath());
+            if (!outputFile.delete()) {
+                return DownloadStatus.DELETE_FILE_ERROR;
             }
-            return DownloadStatus.ALREADY_EXISTS;
         }
-        return downloadFile(url, outputFile, hash, expectedSize);
+        return downloadWithRetry(url, outputFile, hash, expectedSize);
+    }
+
+    protected DownloadStatus downloadWithRetry(URL url, File outputFile, String hash, int expectedSize){
+        return retryPolicy.execute(() -> downloadFile(url, outputFile, hash, expectedSize));
     }
 
     protected DownloadStatus downloadFile(URL url, File outputFile, String hash, int expectedSize){
-        HttpURLConnection connection = null;
+        try (ConcurrencyController.Permit permit = concurrencyController.acquire(url.getHost())) {
+            Path partPath = claimPartPath(outputFile);
+            try {
+                return downloadFile(url, outputFile, partPath, hash, expectedSize, permit);
+            } finally {
+                releasePartPath(outputFile, partPath);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return DownloadStatus.ERROR;
+        }
+    }
+
+    private DownloadStatus downloadFile(URL url, File outputFile, Path partPath, String hash, int expectedSize, ConcurrencyController.Permit permit) throws InterruptedException {
+        Path validatorPath = getValidatorPath(partPath);
         try {
-            connection = (HttpURLConnection) url.openConnection();
-            connection.connect();
-            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            long resumeFrom = getResumeOffset(partPath, validatorPath, expectedSize);
+            if (resumeFrom == 0 && chunkedDownloadThreshold > 0 && expectedSize >= chunkedDownloadThreshold) {
+                Optional<DownloadStatus> chunkedStatus = downloadChunked(url, outputFile, partPath, hash, expectedSize, permit);
+                if (chunkedStatus.isPresent()) return chunkedStatus.get();
+            }
+            HttpTransport transport = HttpTransport.shared();
+            HttpRequest.Builder request = transport.request(url);
+            if (resumeFrom > 0) {
+                request.header("Range", "bytes=" + resumeFrom + "-")
+                        .header("If-Range", Files.readString(validatorPath).trim());
+            }
+            HttpResponse<InputStream> response = transport.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            permit.recordResponse(response.statusCode());
+            boolean resumed = resumeFrom > 0
+                    && response.statusCode() == HttpURLConnection.HTTP_PARTIAL
+                    && getContentRangeStart(response) == resumeFrom;
+            if (!resumed && response.statusCode() != HttpURLConnection.HTTP_OK) {
+                response.body().close();
+                if (resumeFrom > 0) discardPartFile(partPath);
                 return DownloadStatus.HTTP_ERROR;
             }
-            int contentLength = connection.getContentLength();
-            if (contentLength != expectedSize) {
+            long remaining = resumed ? expectedSize - resumeFrom : expectedSize;
+            long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(remaining);
+            if (contentLength != remaining) {
+                response.body().close();
+                discardPartFile(partPath);
                 return DownloadStatus.SIZE_MISSMATCH;
             }
-            writeToFileFromConnection(connection, outputFile);
-            String outputFileHash = getSHA1Hash(outputFile);
-            if (outputFileHash == null || !outputFileHash.equals(hash)){
-                return DownloadStatus.HASH_MISSMATCH;
+            MessageDigest messageDigest = newSHA1Digest();
+            if (resumed) {
+                updateDigest(messageDigest, partPath);
             } else {
-                return DownloadStatus.OK;
+                discardPartFile(partPath);
+                saveValidator(response, validatorPath);
             }
+            //A failed transfer keeps the .part file and its validator, so the next attempt resumes from there
+            writeToPartFile(response, partPath, messageDigest, resumed);
+            permit.recordBytes(remaining);
+            String downloadedHash = HEX.formatHex(messageDigest.digest());
+            if (!downloadedHash.equals(hash)){
+                discardPartFile(partPath);
+                return DownloadStatus.HASH_MISSMATCH;
+            }
+            commitPartFile(partPath, outputFile.toPath());
+            Files.deleteIfExists(validatorPath);
+            if (integrityIndex != null) integrityIndex.record(outputFile.toPath(), hash);
+            return DownloadStatus.OK;
         } catch (IOException e) {
+            recordFailure(permit, e);
             return DownloadStatus.ERROR;
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
         }
     }
 
-    protected DownloadStatus downloadFile(URL url, File outputFile){
-        HttpURLConnection connection = null;
-        try {
-            connection = (HttpURLConnection) url.openConnection();
-            connection.connect();
-            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                return DownloadStatus.HTTP_ERROR;
+    private void recordFailure(ConcurrencyController.Permit permit, IOException e){
+        if (e instanceof HttpTimeoutException) {
+            permit.recordTimeout();
+        } else {
+            permit.recordFailure();
+        }
+    }
+
+    private Optional<DownloadStatus> downloadChunked(URL url, File outputFile, Path partPath, String hash, long expectedSize, ConcurrencyController.Permit permit) throws IOException, InterruptedException {
+        long chunkSize = (expectedSize + MAX_CHUNKS - 1) / MAX_CHUNKS;
+        List<Future<Boolean>> chunks = new ArrayList<>();
+        boolean complete = true;
+        discardPartFile(partPath);
+        try (FileChannel channel = FileChannel.open(partPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long start = 0; start < expectedSize; start += chunkSize) {
+                long chunkStart = start;
+                long chunkEnd = Math.min(start + chunkSize, expectedSize) - 1;
+                chunks.add(executor.submit(() -> downloadRange(url, channel, chunkStart, chunkEnd, permit)));
             }
-            writeToFileFromConnection(connection, outputFile);
-            return DownloadStatus.OK;
-        } catch (IOException e) {
-            return DownloadStatus.ERROR;
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+            for (Future<Boolean> chunk : chunks) {
+                try {
+                    complete &= chunk.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException ioException) recordFailure(permit, ioException);
+                    complete = false;
+                }
             }
         }
+        if (!complete) {
+            //The host doesn't serve ranges or a chunk failed, fall back to a single stream
+            discardPartFile(partPath);
+            return Optional.empty();
+        }
+        String downloadedHash = getSHA1Hash(partPath.toFile());
+        if (!hash.equals(downloadedHash)) {
+            discardPartFile(partPath);
+            return Optional.of(DownloadStatus.HASH_MISSMATCH);
+        }
+        commitPartFile(partPath, outputFile.toPath());
+        if (integrityIndex != null) integrityIndex.record(outputFile.toPath(), hash);
+        return Optional.of(DownloadStatus.OK);
     }
 
-    public void writeToFileFromConnection(HttpURLConnection connection, File outputFile) throws IOException {
-        try (InputStream inputStream = connection.getInputStream();
-             FileOutputStream outputStream = new FileOutputStream(outputFile)) {
-            byte[] buffer = new byte[8192];
+    private boolean downloadRange(URL url, FileChannel channel, long start, long end, ConcurrencyController.Permit permit) throws IOException {
+        HttpTransport transport = HttpTransport.shared();
+        HttpRequest request = transport.request(url).header("Range", "bytes=" + start + "-" + end).build();
+        HttpResponse<InputStream> response = transport.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        permit.recordResponse(response.statusCode());
+        try (InputStream inputStream = response.body()) {
+            if (response.statusCode() != HttpURLConnection.HTTP_PARTIAL || getContentRangeStart(response) != start) {
+                return false;
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = start;
             int bytesRead;
             while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, bytesRead);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
             }
+            permit.recordBytes(position - start);
+            return position == end + 1;
         }
     }
 
-    protected String getSHA1Hash(File file) {
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+    private long getResumeOffset(Path partPath, Path validatorPath, long expectedSize) throws IOException {
+        if (!Files.exists(partPath)) return 0;
+        long partSize = Files.size(partPath);
+        if (Files.exists(validatorPath) && partSize > 0 && partSize < expectedSize) {
+            return partSize;
+        }
+        discardPartFile(partPath);
+        return 0;
+    }
+
+    private long getContentRangeStart(HttpResponse<?> response){
+        Optional<String> contentRange = response.headers().firstValue("Content-Range");
+        if (contentRange.isEmpty()) return -1;
+        Matcher matcher = CONTENT_RANGE_PATTERN.matcher(contentRange.get());
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private void saveValidator(HttpResponse<?> response, Path validatorPath) throws IOException {
+        Optional<String> validator = response.headers().firstValue("ETag")
+                .filter(etag -> !etag.startsWith("W/"))
+                .or(() -> response.headers().firstValue("Last-Modified"));
+        if (validator.isPresent()) {
+            Files.writeString(validatorPath, validator.get());
+        }
+    }
+
+    protected DownloadStatus downloadLzmaWithRetry(URL url, File outputFile, String compressedHash, long compressedSize, @Nullable String rawHash, long rawSize){
+        return retryPolicy.execute(() -> downloadLzmaFile(url, outputFile, compressedHash, compressedSize, rawHash, rawSize));
+    }
+
+    //Streams the .lzma variant through the decoder, hashing both the compressed and the decompressed bytes
+    protected DownloadStatus downloadLzmaFile(URL url, File outputFile, String compressedHash, long compressedSize, @Nullable String rawHash, long rawSize){
+        try (ConcurrencyController.Permit permit = concurrencyController.acquire(url.getHost())) {
+            Path partPath = claimPartPath(outputFile);
+            try {
+                discardPartFile(partPath);
+                HttpResponse<InputStream> response = HttpTransport.shared().get(url);
+                permit.recordResponse(response.statusCode());
+                if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                    response.body().close();
+                    return DownloadStatus.HTTP_ERROR;
+                }
+                long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(compressedSize);
+                if (contentLength != compressedSize) {
+                    response.body().close();
+                    return DownloadStatus.SIZE_MISSMATCH;
+                }
+                MessageDigest compressedDigest = newSHA1Digest();
+                MessageDigest rawDigest = newSHA1Digest();
+                long written;
+                try (InputStream compressedStream = new DigestInputStream(new BufferedInputStream(response.body(), BUFFER_SIZE), compressedDigest);
+                     InputStream inputStream = new LzmaInputStream(compressedStream);
+                     OutputStream outputStream = new DigestOutputStream(Files.newOutputStream(partPath), rawDigest)) {
+                    written = inputStream.transferTo(outputStream);
+                    //Anything after the end marker still belongs to the compressed hash
+                    compressedStream.transferTo(OutputStream.nullOutputStream());
+                }
+                permit.recordBytes(compressedSize);
+                if (!HEX.formatHex(compressedDigest.digest()).equals(compressedHash)
+                        || (rawHash != null && !HEX.formatHex(rawDigest.digest()).equals(rawHash))) {
+                    discardPartFile(partPath);
+                    return DownloadStatus.HASH_MISSMATCH;
+                }
+                if (rawSize >= 0 && written != rawSize) {
+                    discardPartFile(partPath);
+                    return DownloadStatus.SIZE_MISSMATCH;
+                }
+                commitPartFile(partPath, outputFile.toPath());
+                if (integrityIndex != null && rawHash != null) integrityIndex.record(outputFile.toPath(), rawHash);
+                return DownloadStatus.OK;
+            } catch (IOException e) {
+                recordFailure(permit, e);
+                try {
+                    discardPartFile(partPath);
+                } catch (IOException ignored) {
+                }
+                return DownloadStatus.ERROR;
+            } finally {
+                releasePartPath(outputFile, partPath);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return DownloadStatus.ERROR;
+        }
+    }
 
-            try (FileInputStream fis = new FileInputStream(file)) {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = fis.read(buffer)) != -1) {
-                    messageDigest.update(buffer, 0, bytesRead);
+    protected DownloadStatus downloadFile(URL url, File outputFile){
+        try (ConcurrencyController.Permit permit = concurrencyController.acquire(url.getHost())) {
+            try {
+                HttpResponse<InputStream> response = HttpTransport.shared().get(url);
+                permit.recordResponse(response.statusCode());
+                if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                    response.body().close();
+                    return DownloadStatus.HTTP_ERROR;
                 }
+                writeToFileFromResponse(response, outputFile);
+                permit.recordBytes(outputFile.length());
+                return DownloadStatus.OK;
+            } catch (IOException e) {
+                recordFailure(permit, e);
+                return DownloadStatus.ERROR;
             }
-            byte[] hashBytes = messageDigest.digest();
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashBytes) {
-                hexString.append(String.format("%02x", b));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return DownloadStatus.ERROR;
+        }
+    }
+
+    public void writeToFileFromResponse(HttpResponse<InputStream> response, File outputFile) throws IOException {
+        try (InputStream inputStream = response.body();
+             OutputStream outputStream = Files.newOutputStream(outputFile.toPath())) {
+            inputStream.transferTo(outputStream);
+        }
+    }
+
+    private void writeToPartFile(HttpResponse<InputStream> response, Path partPath, MessageDigest messageDigest, boolean append) throws IOException {
+        OpenOption mode = append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try (InputStream inputStream = response.body();
+             OutputStream outputStream = new DigestOutputStream(
+                     Files.newOutputStream(partPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode), messageDigest)) {
+            inputStream.transferTo(outputStream);
+        }
+    }
+
+    private void updateDigest(MessageDigest messageDigest, Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, bytesRead);
             }
-            return hexString.toString();
-        } catch (IOException | NoSuchAlgorithmException e) {
+        }
+    }
+
+    protected Path getPartPath(File outputFile){
+        return outputFile.toPath().resolveSibling(outputFile.getName() + ".part");
+    }
+
+    //The shared .part name keeps resumes across runs, an attempt racing another one for the same file gets a private name
+    private Path claimPartPath(File outputFile){
+        Path sharedPath = getPartPath(outputFile);
+        if (ACTIVE_PART_FILES.add(sharedPath)) return sharedPath;
+        Path privatePath = outputFile.toPath().resolveSibling(outputFile.getName() + "." + PART_SEQUENCE.incrementAndGet() + ".part");
+        ACTIVE_PART_FILES.add(privatePath);
+        return privatePath;
+    }
+
+    private void releasePartPath(File outputFile, Path partPath){
+        ACTIVE_PART_FILES.remove(partPath);
+        if (partPath.equals(getPartPath(outputFile))) return;
+        //Nothing resumes a private part file
+        try {
+            discardPartFile(partPath);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Path getValidatorPath(Path partPath){
+        return partPath.resolveSibling(partPath.getFileName() + ".validator");
+    }
+
+    private void discardPartFile(Path partPath) throws IOException {
+        Files.deleteIfExists(partPath);
+        Files.deleteIfExists(getValidatorPath(partPath));
+    }
+
+    protected void commitPartFile(Path partPath, Path outputPath) throws IOException {
+        try {
+            Files.move(partPath, outputPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    protected String getSHA1Hash(File file) {
+        MessageDigest messageDigest = newSHA1Digest();
+        try {
+            updateDigest(messageDigest, file.toPath());
+        } catch (IOException e) {
             return null;
         }
+        return HEX.formatHex(messageDigest.digest());
+    }
+
+    protected static MessageDigest newSHA1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available.", e);
+        }
     }
 
     protected Natives getNatives(String nativeStr){
@@ -139,22 +419,4 @@ public class Installer {
         return Natives.NONE;
     }
 
-    protected <E, T extends Collection<E>> void executeConcurrent(T batches, Consumer<E> batchRunnable, int threadAmount){
-        try (ExecutorService executor = Executors.newFixedThreadPool(threadAmount)){
-            for (E batch : batches) {
-                executor.submit(() -> batchRunnable.accept(batch));
-            }
-        }
-    }
-
-    protected <E> List<List<E>> splitIntoBatches(List<E> items, int batchAmount) {
-        List<List<E>> batches = new ArrayList<>();
-        int batchSize = (int) Math.ceil((double) items.size() / batchAmount);
-        for (int i = 0; i < items.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, items.size());
-            batches.add(new ArrayList<>(items.subList(i, end)));
-        }
-        return batches;
-    }
-
 }
@@ -20,6 +20,11 @@ public abstract class LoaderInstaller extends Installer {
 
     public abstract boolean install(CoreLogger logger, MinecraftVersion minecraftVersion, DataController dataController, String osName, Natives natives, ProgressCallback callback);
 
+    //State needed to launch without installing again, kept by the InstalledVersionRegistry
+    public abstract JsonObject saveState();
+
+    public abstract boolean loadInstalled(CoreLogger logger, MinecraftVersion minecraftVersion, JsonObject state);
+
     @Nullable
     public abstract List<String> getJVMArgs();
 
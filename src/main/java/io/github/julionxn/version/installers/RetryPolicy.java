@@ -0,0 +1,58 @@
+package io.github.julionxn.version.installers;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+public class RetryPolicy {
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(4, Duration.ofMillis(500), Duration.ofSeconds(15),
+            EnumSet.of(DownloadStatus.ERROR, DownloadStatus.HTTP_ERROR, DownloadStatus.HASH_MISSMATCH));
+    public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, Duration.ZERO, EnumSet.noneOf(DownloadStatus.class));
+
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final Set<DownloadStatus> retryOn;
+
+    public RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay, Set<DownloadStatus> retryOn){
+        if (maxAttempts < 1) throw new IllegalArgumentException("A RetryPolicy needs at least one attempt.");
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.retryOn = retryOn.isEmpty() ? EnumSet.noneOf(DownloadStatus.class) : EnumSet.copyOf(retryOn);
+    }
+
+    public int getMaxAttempts(){
+        return maxAttempts;
+    }
+
+    public boolean isRetryable(DownloadStatus status){
+        return retryOn.contains(status);
+    }
+
+    public DownloadStatus execute(Supplier<DownloadStatus> download){
+        DownloadStatus status = download.get();
+        for (int attempt = 1; attempt < maxAttempts && isRetryable(status); attempt++) {
+            try {
+                Thread.sleep(getBackoff(attempt).toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return status;
+            }
+            status = download.get();
+        }
+        return status;
+    }
+
+    public Duration getBackoff(int attempt){
+        //Full jitter: a random delay up to the capped exponential bound
+        long bound = baseDelay.toMillis() << Math.min(attempt - 1, 20);
+        long capped = Math.min(Math.max(bound, 0), maxDelay.toMillis());
+        if (capped <= 0) return Duration.ZERO;
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(capped + 1));
+    }
+
+}
@@ -10,6 +10,7 @@ import io.github.julionxn.system.Natives;
 import io.github.julionxn.system.SystemController;
 import io.github.julionxn.version.MinecraftVersion;
 import io.github.julionxn.version.data.AssetIndexInfo;
+import io.github.julionxn.version.data.CompactAssetIndex;
 import io.github.julionxn.version.data.RuntimeComponentInfo;
 import io.github.julionxn.version.data.VersionJarInfo;
 import io.github.julionxn.version.loaders.Loader;
@@ -17,7 +18,6 @@ import io.github.julionxn.version.loaders.Loader;
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -37,78 +37,252 @@ public class VersionInstaller extends Installer {
     private final String osName;
     private final Natives natives;
     private final ProgressCallback callback;
-    private final int threads = 4;
+    private final DownloadScheduler scheduler;
 
-    public VersionInstaller(CoreLogger logger, MinecraftVersion minecraftVersion, SystemController systemController, DataController dataController, ProgressCallback callback){
+    public VersionInstaller(CoreLogger logger, MinecraftVersion minecraftVersion, SystemController systemController, DataController dataController, DownloadScheduler scheduler, ProgressCallback callback){
         this.logger = logger;
         this.minecraftVersion = minecraftVersion;
         this.dataController = dataController;
         this.osName = systemController.getOsName();
         this.natives = systemController.getNatives();
         this.callback = callback;
+        this.scheduler = scheduler;
+        this.concurrencyController = scheduler.getConcurrencyController();
+        this.integrityIndex = dataController.getIntegrityIndex();
+    }
+
+    public void setFullVerify(boolean fullVerify){
+        this.fullVerify = fullVerify;
+    }
+
+    public void setChunkedDownloadThreshold(long chunkedDownloadThreshold){
+        this.chunkedDownloadThreshold = chunkedDownloadThreshold;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy){
+        this.retryPolicy = retryPolicy;
+    }
+
+    public void setPreferLzma(boolean preferLzma){
+        this.preferLzma = preferLzma;
     }
 
     public boolean install(){
-        if (installAssets() &&
-            installLibraries() &&
-            installRuntime() &&
-            installClientJar()){
-            Loader loader = minecraftVersion.getLoader();
-            if (loader != null){
-                LoaderInstaller loaderInstaller = loader.getInstaller();
-                boolean okLoader = loaderInstaller.install(logger, minecraftVersion, dataController, osName, natives, callback);
-                callback.onProgress("Done", 1f);
-                return okLoader;
+        try {
+            InstallPlan plan = plan();
+            if (!plan.hasEnoughSpace()) {
+                logger.error("Not enough disk space to install " + plan.version() + ": " + plan.getRequiredSpace()
+                        + " bytes required, " + plan.usableSpace() + " available.");
+                return false;
+            }
+            logger.info("Installing " + plan.version() + ": " + plan.getMissingCount() + " files, " + plan.getMissingBytes() + " bytes to download.");
+            boolean success = installPhases();
+            if (success) {
+                String version = minecraftVersion.getVersion();
+                minecraftVersion.releaseInstallMetadata(dataController.getVersionsPath().resolve(version).resolve(version + ".json"));
+            }
+            return success;
+        } finally {
+            dataController.getIntegrityIndex().save();
+        }
+    }
+
+    //Stat-only diff of the resolved metadata against the local store, nothing is downloaded or written
+    public InstallPlan plan(){
+        List<InstallPlan.PhasePlan> phases = new ArrayList<>();
+        List<InstallPlan.PlannedFile> missing = new ArrayList<>();
+        //Assets
+        CompactAssetIndex assetIndex = minecraftVersion.getAssetIndexInfo().index();
+        Path objectsPath = dataController.getAssetsPath().resolve("objects");
+        PhaseCounter assets = new PhaseCounter("Asset Objects", missing);
+        //The same object can be listed under several names
+        for (int index : getDistinctObjects(assetIndex)) {
+            String hash = assetIndex.getHash(index);
+            assets.check(objectsPath.resolve(hash.substring(0, 2)).resolve(hash), assetIndex.getSize(index), hash);
+        }
+        phases.add(assets.toPlan());
+        //Libraries
+        PhaseCounter libraries = new PhaseCounter("Libraries", missing);
+        for (JsonElement library : minecraftVersion.getLibraries()) {
+            if (!isLibraryAllowed(library.getAsJsonObject())) continue;
+            JsonObject downloads = library.getAsJsonObject().getAsJsonObject("downloads");
+            for (Map.Entry<String, JsonElement> downloadEntry : downloads.entrySet()) {
+                JsonObject download = downloadEntry.getValue().getAsJsonObject();
+                libraries.check(dataController.getLibrariesPath().resolve(download.get("path").getAsString()),
+                        download.get("size").getAsLong(), download.get("sha1").getAsString());
+            }
+        }
+        phases.add(libraries.toPlan());
+        //Runtime
+        RuntimeComponentInfo runtimeComponentInfo = minecraftVersion.getRuntimeComponentInfo();
+        Path componentFolder = dataController.getRuntimesPath().resolve(runtimeComponentInfo.version());
+        PhaseCounter runtime = new PhaseCounter("Runtime Files", missing);
+        for (Map.Entry<String, JsonElement> file : runtimeComponentInfo.runtimeData().getAsJsonObject("files").entrySet()) {
+            JsonObject data = file.getValue().getAsJsonObject();
+            if (!data.get("type").getAsString().equals("file")) continue;
+            JsonObject raw = data.getAsJsonObject("downloads").getAsJsonObject("raw");
+            Path path = componentFolder.resolve(file.getKey());
+            if (raw != null) {
+                runtime.check(path, raw.get("size").getAsLong(), raw.get("sha1").getAsString());
             } else {
-                return true;
+                //Only the compressed size is listed for lzma-only entries, so like the install just their presence counts
+                runtime.checkExists(path, getRuntimeFileSize(file));
             }
+        }
+        phases.add(runtime.toPlan());
+        //Client jar
+        String version = minecraftVersion.getVersion();
+        VersionJarInfo versionJarInfo = minecraftVersion.getVersionJarInfo();
+        PhaseCounter clientJar = new PhaseCounter("Client Jar", missing);
+        clientJar.check(dataController.getVersionsPath().resolve(version).resolve(version + ".jar"), versionJarInfo.size(), versionJarInfo.sha1());
+        phases.add(clientJar.toPlan());
+        return new InstallPlan(version, List.copyOf(phases), List.copyOf(missing), getUsableSpace());
+    }
 
+    private long getUsableSpace(){
+        try {
+            Path dataPath = dataController.getDataPath();
+            Files.createDirectories(dataPath);
+            return Files.getFileStore(dataPath).getUsableSpace();
+        } catch (IOException e) {
+            logger.error("Error reading the free space of " + dataController.getDataPath() + ".", e);
+            return -1;
         }
-        return false;
     }
 
-    private boolean installAssets(){
+    private class PhaseCounter {
+
+        private final String phase;
+        private final List<InstallPlan.PlannedFile> missing;
+        private int total;
+        private int missingCount;
+        private long missingBytes;
+
+        private PhaseCounter(String phase, List<InstallPlan.PlannedFile> missing){
+            this.phase = phase;
+            this.missing = missing;
+        }
+
+        private void check(Path path, long size, String sha1){
+            total++;
+            if (isPresent(path, size, sha1)) return;
+            addMissing(path, size);
+        }
+
+        private void checkExists(Path path, long downloadSize){
+            total++;
+            if (Files.exists(path)) return;
+            addMissing(path, downloadSize);
+        }
+
+        private void addMissing(Path path, long size){
+            missingCount++;
+            missingBytes += size;
+            missing.add(new InstallPlan.PlannedFile(phase, path, size));
+        }
+
+        private boolean isPresent(Path path, long size, String sha1){
+            //Same trust rule as the install: a verified index entry, otherwise a matching size
+            if (!fullVerify && sha1 != null && integrityIndex != null && integrityIndex.isVerified(path, sha1)) return true;
+            try {
+                return Files.size(path) == size;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private InstallPlan.PhasePlan toPlan(){
+            return new InstallPlan.PhasePlan(phase, total, missingCount, missingBytes);
+        }
+
+    }
+
+    private boolean installPhases(){
+        //Phases only wait on what they need, so the install takes as long as its slowest branch
+        InstallGraph graph = new InstallGraph(logger)
+                .addStep("assets", this::installAssets)
+                .addStep("libraries", this::installLibraries)
+                .addStep("runtime", this::installRuntime)
+                .addStep("client", this::installClientJar);
+        Loader loader = minecraftVersion.getLoader();
+        if (loader != null){
+            LoaderInstaller loaderInstaller = loader.getInstaller();
+            graph.addStep("loader", progress -> loaderInstaller.install(logger, minecraftVersion, dataController, osName, natives, progress),
+                    "libraries", "client");
+        }
+        boolean success = graph.run(callback);
+        if (success) callback.onProgress("Done", 1f);
+        return success;
+    }
+
+    private boolean installAssets(ProgressCallback progress){
         String status = "Installing Assets";
-        callback.onProgress(status, 0);
+        progress.onProgress(status, 0);
         AssetIndexInfo assetIndexInfo = minecraftVersion.getAssetIndexInfo();
-        JsonObject assetData = assetIndexInfo.assetIndexData();
-        String assetId = assetIndexInfo.id();
-        addAssetIndex(assetId, assetData);
-        JsonObject objects = assetData.get("objects").getAsJsonObject();
-        URI resourcesURI;
-        try {
-            resourcesURI = new URI(RESOURCES_URL);
-        } catch (URISyntaxException e) {
-            logger.error("Error getting URL " + RESOURCES_URL + ".", e);
-            return false;
-        }
-        List<Map.Entry<String, JsonElement>> entries = objects.entrySet().stream().toList();
-        int totalEntries = entries.size();
+        CompactAssetIndex assetIndex = assetIndexInfo.index();
+        addAssetIndex(assetIndexInfo.id(), assetIndex);
+        //The same object can be listed under several names, each one is downloaded once
+        int[] objects = getDistinctObjects(assetIndex);
+        int totalEntries = objects.length;
         AtomicInteger entriesDone = new AtomicInteger();
-        List<List<Map.Entry<String, JsonElement>>> batches = splitIntoBatches(entries, threads);
-        executeConcurrent(batches, batch -> {
-            for (Map.Entry<String, JsonElement> objectEntry : batch) {
-                JsonObject object = objectEntry.getValue().getAsJsonObject();
-                String hash = object.get("hash").getAsString();
-                int size = object.get("size").getAsInt();
-                URL objectUrl;
-                try {
-                    objectUrl = resourcesURI.resolve(hash.substring(0, 2)).resolve(hash).toURL();
-                } catch (MalformedURLException e) {
-                    logger.error("Malformed URL: ", e);
-                    entriesDone.getAndIncrement();
-                    callback.onProgress(status, (float) entriesDone.get() / totalEntries);
-                    continue;
-                }
-                downloadAssetObject(objectUrl, hash, size);
-                entriesDone.getAndIncrement();
-                callback.onProgress(status, (float) entriesDone.get() / totalEntries);
+        AtomicInteger entriesFailed = new AtomicInteger();
+        scheduler.executeIndexed(totalEntries, object -> assetIndex.getSize(objects[object]), object -> {
+            int index = objects[object];
+            String hash = assetIndex.getHash(index);
+            int size = assetIndex.getSize(index);
+            URL objectUrl;
+            try {
+                objectUrl = URI.create(RESOURCES_URL + hash.substring(0, 2) + "/" + hash).toURL();
+            } catch (MalformedURLException e) {
+                logger.error("Malformed URL: ", e);
+                entriesFailed.incrementAndGet();
+                progress.onProgress(status, (float) entriesDone.incrementAndGet() / totalEntries);
+                return;
             }
-        }, threads);
-        return true;
+            if (!isSuccessful(downloadAssetObject(objectUrl, hash, size))) {
+                entriesFailed.incrementAndGet();
+            }
+            progress.onProgress(status, (float) entriesDone.incrementAndGet() / totalEntries);
+        });
+        return checkFailures("Asset Objects", entriesFailed.get(), totalEntries);
+    }
+
+    //First entry of every distinct object, compared on the packed hashes so no hex string is built per entry
+    private int[] getDistinctObjects(CompactAssetIndex assetIndex){
+        Set<AssetObjectKey> seen = new HashSet<>();
+        int[] objects = new int[assetIndex.size()];
+        int count = 0;
+        for (int i = 0; i < assetIndex.size(); i++) {
+            if (seen.add(new AssetObjectKey(assetIndex, i))) objects[count++] = i;
+        }
+        return Arrays.copyOf(objects, count);
     }
 
-    private void addAssetIndex(String id, JsonObject assetData){
+    private record AssetObjectKey(CompactAssetIndex assetIndex, int index) {
+
+        @Override
+        public boolean equals(Object other){
+            return other instanceof AssetObjectKey key && assetIndex.hashEquals(index, key.index);
+        }
+
+        @Override
+        public int hashCode(){
+            return assetIndex.hashCodeAt(index);
+        }
+
+    }
+
+    private boolean isSuccessful(DownloadStatus status){
+        return status == DownloadStatus.OK || status == DownloadStatus.ALREADY_EXISTS;
+    }
+
+    private boolean checkFailures(String phase, int failed, int total){
+        if (failed == 0) return true;
+        logger.error(failed + " of " + total + " " + phase + " could not be installed.");
+        return false;
+    }
+
+    private void addAssetIndex(String id, CompactAssetIndex assetIndex){
         Optional<File> assetIndexFileOpt = this.dataController.prepareAssetIndexFile(id);
         if (assetIndexFileOpt.isEmpty()) {
             logger.error("Error saving assetIndexFile.");
@@ -116,80 +290,93 @@ public class VersionInstaller extends Installer {
         }
         File assetIndexFile = assetIndexFileOpt.get();
         try {
-            Files.write(assetIndexFile.toPath(), assetData.toString().getBytes());
+            assetIndex.write(assetIndexFile.toPath());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private void downloadAssetObject(URL url, String hash, int expectedSize) {
+    private DownloadStatus downloadAssetObject(URL url, String hash, int expectedSize) {
         Optional<File> outputFileOptional = dataController.prepareAssetObjectFile(hash);
         if (outputFileOptional.isEmpty()){
             logger.error("Error preparing " + hash + " asset file.");
-            return;
+            return DownloadStatus.ERROR;
         }
         File outputFile = outputFileOptional.get();
-        downloadAndCheckFile(url, hash, expectedSize, outputFile, () -> {
-            downloadAssetObject(url, hash, expectedSize);
-            return DownloadStatus.OK;
-        });
+        DownloadStatus downloadStatus = downloadAndCheckFile(url, hash, expectedSize, outputFile);
+        if (!isSuccessful(downloadStatus)) {
+            logger.error("Failed to download Asset Object " + hash + ". Code: " + downloadStatus + ".");
+        }
+        return downloadStatus;
     }
 
-    private boolean installLibraries(){
+    private boolean installLibraries(ProgressCallback progress){
         String status = "Installing Libraries";
-        callback.onProgress(status, 0);
+        progress.onProgress(status, 0);
         JsonArray libraries = minecraftVersion.getLibraries();
         int totalLibraries = libraries.size();
         AtomicInteger librariesDone = new AtomicInteger();
-        List<List<JsonElement>> batches = splitIntoBatches(libraries.asList(), threads);
-        executeConcurrent(batches, batch -> {
-            for (JsonElement library : batch) {
-                JsonObject downloads = library.getAsJsonObject().get("downloads").getAsJsonObject();
-                JsonElement rulesElement = library.getAsJsonObject().get("rules");
-                if (rulesElement != null) {
-                    JsonArray rules = rulesElement.getAsJsonArray();
-                    boolean breakLibrary = false;
-                    for (JsonElement ruleElement : rules) {
-                        String libraryOs = ruleElement.getAsJsonObject().get("os").getAsJsonObject().get("name").getAsString();
-                        if (libraryOs == null || !libraryOs.equals(osName)){
-                            breakLibrary = true;
-                        }
-                    }
-                    if (breakLibrary) {
-                        librariesDone.getAndIncrement();
-                        callback.onProgress(status, (float) librariesDone.get() / totalLibraries);
-                        continue;
-                    }
+        AtomicInteger librariesFailed = new AtomicInteger();
+        scheduler.execute(libraries.asList(), this::getLibraryDownloadSize, library -> {
+            JsonObject downloads = library.getAsJsonObject().get("downloads").getAsJsonObject();
+            if (!isLibraryAllowed(library.getAsJsonObject())) {
+                progress.onProgress(status, (float) librariesDone.incrementAndGet() / totalLibraries);
+                return;
+            }
+            boolean failed = false;
+            for (Map.Entry<String, JsonElement> downloadEntry : downloads.entrySet()) {
+                JsonObject download = downloadEntry.getValue().getAsJsonObject();
+                String path = download.get("path").getAsString();
+                String url = download.get("url").getAsString();
+                String hash = download.get("sha1").getAsString();
+                int size = download.get("size").getAsInt();
+                URL artifactUrl;
+                try{
+                    artifactUrl = new URL(url);
+                } catch (MalformedURLException e) {
+                    logger.error("Error getting URL " + url + ".", e);
+                    failed = true;
+                    continue;
                 }
-                for (Map.Entry<String, JsonElement> downloadEntry : downloads.entrySet()) {
-                    JsonObject download = downloadEntry.getValue().getAsJsonObject();
-                    String path = download.get("path").getAsString();
-                    String url = download.get("url").getAsString();
-                    String hash = download.get("sha1").getAsString();
-                    int size = download.get("size").getAsInt();
-                    URL artifactUrl;
-                    try{
-                        artifactUrl = new URL(url);
-                    } catch (MalformedURLException e) {
-                        logger.error("Error getting URL " + url + ".", e);
-                        librariesDone.getAndIncrement();
-                        callback.onProgress(status, (float) librariesDone.get() / totalLibraries);
-                        return;
-                    }
-                    Optional<File> file = downloadLibraryArtifact(artifactUrl, path, hash, size);
-                    librariesDone.getAndIncrement();
-                    callback.onProgress(status, (float) librariesDone.get() / totalLibraries);
-                    if (!path.contains("natives") || file.isEmpty()) continue;
-                    Natives fileNatives = getNatives(path);
-                    if (fileNatives == natives){
-                        extractNatives(minecraftVersion.getVersion(), file.get());
-                    }
+                Optional<File> file = downloadLibraryArtifact(artifactUrl, path, hash, size);
+                if (file.isEmpty()) {
+                    failed = true;
+                    continue;
+                }
+                if (!path.contains("natives")) continue;
+                Natives fileNatives = getNatives(path);
+                if (fileNatives == natives){
+                    extractNatives(minecraftVersion.getVersion(), file.get());
                 }
             }
-        }, threads);
+            if (failed) librariesFailed.incrementAndGet();
+            progress.onProgress(status, (float) librariesDone.incrementAndGet() / totalLibraries);
+        });
+        return checkFailures("Libraries", librariesFailed.get(), totalLibraries);
+    }
+
+    private boolean isLibraryAllowed(JsonObject library){
+        JsonElement rulesElement = library.get("rules");
+        if (rulesElement == null) return true;
+        for (JsonElement ruleElement : rulesElement.getAsJsonArray()) {
+            String libraryOs = ruleElement.getAsJsonObject().get("os").getAsJsonObject().get("name").getAsString();
+            if (libraryOs == null || !libraryOs.equals(osName)){
+                return false;
+            }
+        }
         return true;
     }
 
+    private long getLibraryDownloadSize(JsonElement library){
+        JsonObject downloads = library.getAsJsonObject().getAsJsonObject("downloads");
+        if (downloads == null) return 0;
+        long size = 0;
+        for (Map.Entry<String, JsonElement> downloadEntry : downloads.entrySet()) {
+            size += downloadEntry.getValue().getAsJsonObject().get("size").getAsLong();
+        }
+        return size;
+    }
+
     private Optional<File> downloadLibraryArtifact(URL url, String path, String hash, int expectedSize){
         Optional<File> outputFileOptional = dataController.prepareLibraryFile(path);
         if (outputFileOptional.isEmpty()){
@@ -197,10 +384,11 @@ public class VersionInstaller extends Installer {
             return Optional.empty();
         }
         File outputFile = outputFileOptional.get();
-        downloadAndCheckFile(url, hash, expectedSize, outputFile, () -> {
-            downloadLibraryArtifact(url, path, hash, expectedSize);
-            return DownloadStatus.OK;
-        });
+        DownloadStatus downloadStatus = downloadAndCheckFile(url, hash, expectedSize, outputFile);
+        if (!isSuccessful(downloadStatus)) {
+            logger.error("Failed to download Library " + path + ". Code: " + downloadStatus + ".");
+            return Optional.empty();
+        }
         return Optional.of(outputFile);
     }
 
@@ -233,9 +421,9 @@ public class VersionInstaller extends Installer {
         }
     }
 
-    private boolean installRuntime(){
+    private boolean installRuntime(ProgressCallback progress){
         String status = "Installing Runtime";
-        callback.onProgress(status, 0);
+        progress.onProgress(status, 0);
         RuntimeComponentInfo runtimeComponentInfo = minecraftVersion.getRuntimeComponentInfo();
         String componentVersion = runtimeComponentInfo.version();
         JsonObject componentData = runtimeComponentInfo.runtimeData();
@@ -246,40 +434,62 @@ public class VersionInstaller extends Installer {
         List<Map.Entry<String, JsonElement>> sortedFiles = getSortedArray(files);
         int totalEntries = sortedFiles.size();
         AtomicInteger entriesDone = new AtomicInteger();
-        List<List<Map.Entry<String, JsonElement>>> batches = splitIntoBatches(sortedFiles, threads);
-        executeConcurrent(batches, batch -> {
-            for (Map.Entry<String, JsonElement> file : batch) {
-                String key = file.getKey();
-                JsonObject data = file.getValue().getAsJsonObject();
-                String type = data.get("type").getAsString();
-                Path filePath = componentFolder.resolve(key);
-                if (filePath.toFile().exists()) {
-                    logger.info("Runtime Object " + key + " already exists.");
-                    entriesDone.getAndIncrement();
-                    callback.onProgress(status, (float) entriesDone.get() / totalEntries);
-                    continue;
-                }
-                File objectFile = filePath.toFile();
-                downloadRuntimeFile(objectFile, key, type, data);
-                entriesDone.getAndIncrement();
-                callback.onProgress(status, (float) entriesDone.get() / totalEntries);
+        AtomicInteger entriesFailed = new AtomicInteger();
+        //Directories go first and in order, so every file task finds its parent folder already there
+        List<Map.Entry<String, JsonElement>> fileEntries = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> file : sortedFiles) {
+            String type = file.getValue().getAsJsonObject().get("type").getAsString();
+            if (!type.equals("directory")) {
+                fileEntries.add(file);
+                continue;
             }
-        }, threads);
-        return true;
+            File directory = componentFolder.resolve(file.getKey()).toFile();
+            if (!directory.exists() && !directory.mkdirs()) {
+                logger.error("Error creating Runtime directory " + directory.getPath() + ".");
+            }
+            progress.onProgress(status, (float) entriesDone.incrementAndGet() / totalEntries);
+        }
+        scheduler.execute(fileEntries, this::getRuntimeFileSize, file -> {
+            String key = file.getKey();
+            JsonObject data = file.getValue().getAsJsonObject();
+            String type = data.get("type").getAsString();
+            Path filePath = componentFolder.resolve(key);
+            if (filePath.toFile().exists()) {
+                logger.info(() -> "Runtime Object " + key + " already exists.");
+                progress.onProgress(status, (float) entriesDone.incrementAndGet() / totalEntries);
+                return;
+            }
+            File objectFile = filePath.toFile();
+            if (!downloadRuntimeFile(objectFile, key, type, data)) {
+                entriesFailed.incrementAndGet();
+            }
+            progress.onProgress(status, (float) entriesDone.incrementAndGet() / totalEntries);
+        });
+        return checkFailures("Runtime Files", entriesFailed.get(), totalEntries);
+    }
+
+    private long getRuntimeFileSize(Map.Entry<String, JsonElement> file){
+        JsonObject downloads = file.getValue().getAsJsonObject().getAsJsonObject("downloads");
+        if (downloads == null) return 0;
+        JsonObject fileData = useLzma(downloads) ? downloads.getAsJsonObject("lzma") : downloads.getAsJsonObject("raw");
+        return fileData != null ? fileData.get("size").getAsLong() : 0;
+    }
+
+    private boolean useLzma(JsonObject downloads){
+        return downloads.has("lzma") && (preferLzma || !downloads.has("raw"));
     }
 
-    private void downloadRuntimeFile(File file, String key, String type, JsonObject data){
+    private boolean downloadRuntimeFile(File file, String key, String type, JsonObject data){
         switch (type) {
-            case "directory" -> file.mkdir();
+            case "directory" -> {
+                return file.isDirectory() || file.mkdirs();
+            }
             case "file" -> {
                 boolean executable = data.get("executable").getAsBoolean();
                 JsonObject downloads = data.get("downloads").getAsJsonObject();
-                JsonObject fileData;
-                if (downloads.has("raw")){
-                    fileData = downloads.get("raw").getAsJsonObject();
-                } else {
-                    fileData = downloads.get("lzma").getAsJsonObject();
-                }
+                JsonObject raw = downloads.getAsJsonObject("raw");
+                boolean lzma = useLzma(downloads);
+                JsonObject fileData = lzma ? downloads.getAsJsonObject("lzma") : raw;
                 String sha1 = fileData.get("sha1").getAsString();
                 int size = fileData.get("size").getAsInt();
                 String urlStr = fileData.get("url").getAsString();
@@ -288,12 +498,19 @@ public class VersionInstaller extends Installer {
                     url = new URL(urlStr);
                 } catch (MalformedURLException e) {
                     logger.error("Error getting URL " + urlStr + ".", e);
-                    return;
+                    return false;
+                }
+                DownloadStatus status;
+                if (lzma) {
+                    String rawSha1 = raw != null ? raw.get("sha1").getAsString() : null;
+                    long rawSize = raw != null ? raw.get("size").getAsLong() : -1;
+                    status = downloadLzmaWithRetry(url, file, sha1, size, rawSha1, rawSize);
+                } else {
+                    status = downloadWithRetry(url, file, sha1, size);
                 }
-                DownloadStatus status = downloadFile(url, file, sha1, size);
                 //if executable
                 if (status == DownloadStatus.OK) {
-                    logger.info("Runtime file " + key + " downloaded.");
+                    logger.info(() -> "Runtime file " + key + " downloaded.");
                     if (executable && natives != Natives.WIN
                             && natives != Natives.WIN86
                             && natives != Natives.WIN64
@@ -308,12 +525,18 @@ public class VersionInstaller extends Installer {
                             logger.error("Error while setting a RuntimeFile as executable " + file.getPath(), e);
                         }
                     }
+                    return true;
                 } else {
-                    logger.error("Failed to download RuntimeFile. Code: " + status + ".");
+                    logger.error("Failed to download RuntimeFile " + key + ". Code: " + status + ".");
+                    return false;
                 }
             }
             case "link" -> {
                 //todo
+                return true;
+            }
+            default -> {
+                return true;
             }
         }
     }
@@ -325,9 +548,9 @@ public class VersionInstaller extends Installer {
         return sortedEntries;
     }
 
-    private boolean installClientJar(){
+    private boolean installClientJar(ProgressCallback progress){
         String status = "Installing ClientJar";
-        callback.onProgress(status, 0);
+        progress.onProgress(status, 0);
         VersionJarInfo versionJarInfo = minecraftVersion.getVersionJarInfo();
         String version = minecraftVersion.getVersion();
         JsonObject versionData = minecraftVersion.getVersionData();
@@ -337,16 +560,11 @@ public class VersionInstaller extends Installer {
         Optional<File> clientJarFileOpt = dataController.prepareVersionJarFile(version);
         if (clientJarFileOpt.isEmpty()) return false;
         File clientJarFile = clientJarFileOpt.get();
-        DownloadStatus downloadStatus = downloadAndCheckFile(url, sha1, size, clientJarFile, () -> {
-            installClientJar();
-            return DownloadStatus.OK;
-        });
-        callback.onProgress(status, 0.5f);
-        if (downloadStatus != DownloadStatus.OK){
+        DownloadStatus downloadStatus = downloadAndCheckFile(url, sha1, size, clientJarFile);
+        progress.onProgress(status, 0.5f);
+        if (!isSuccessful(downloadStatus)){
             logger.error("Failed to download Client Jar. Code: " + downloadStatus + ".");
-            if (downloadStatus != DownloadStatus.ALREADY_EXISTS){
-                return false;
-            }
+            return false;
         }
         Optional<File> clientJarManifestFileOpt = dataController.prepareVersionManifestFile(version);
         if (clientJarManifestFileOpt.isEmpty()) return false;
@@ -354,7 +572,7 @@ public class VersionInstaller extends Installer {
         String versionContent = versionData.toString();
         try {
             Files.write(clientJarManifestFile.toPath(), versionContent.getBytes());
-            callback.onProgress(status, 1);
+            progress.onProgress(status, 1);
         } catch (IOException e) {
             logger.error("Error writing VersionJar to " + clientJarManifestFile.getPath(), e);
             return false;
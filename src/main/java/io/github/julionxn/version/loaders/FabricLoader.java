@@ -12,6 +12,11 @@ public class FabricLoader extends Loader {
         super(version);
     }
 
+    @Override
+    public String getId() {
+        return "fabric";
+    }
+
     @Override
     public @NotNull LoaderInstaller getInstaller() {
         if (fabricInstaller == null) {
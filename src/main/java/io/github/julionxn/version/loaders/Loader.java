@@ -15,6 +15,8 @@ public abstract class Loader {
         return version;
     }
 
+    public abstract String getId();
+
     public abstract @NotNull LoaderInstaller getInstaller();
 
 }
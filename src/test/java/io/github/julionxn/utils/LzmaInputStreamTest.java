@@ -0,0 +1,71 @@
+package io.github.julionxn.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LzmaInputStreamTest {
+
+    @Test
+    void decodesUnknownSizeWithEndMarker() throws IOException {
+        assertArrayEquals(readResource("sample.bin"), decode(readResource("sample-unknown-size.lzma")));
+    }
+
+    @Test
+    void decodesKnownSizeWithEndMarker() throws IOException {
+        assertArrayEquals(readResource("sample.bin"), decode(readResource("sample-known-size-end-marker.lzma")));
+    }
+
+    @Test
+    void decodesKnownSizeWithoutEndMarker() throws IOException {
+        assertArrayEquals(readResource("sample.bin"), decode(readResource("sample-known-size.lzma")));
+    }
+
+    @Test
+    void decodesByteByByte() throws IOException {
+        byte[] expected = readResource("sample.bin");
+        try (InputStream in = new LzmaInputStream(new ByteArrayInputStream(readResource("sample-unknown-size.lzma")))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int value;
+            while ((value = in.read()) != -1) {
+                out.write(value);
+            }
+            assertArrayEquals(expected, out.toByteArray());
+        }
+    }
+
+    @Test
+    void rejectsTruncatedStream() throws IOException {
+        byte[] compressed = readResource("sample-known-size.lzma");
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+        assertThrows(EOFException.class, () -> decode(truncated));
+    }
+
+    @Test
+    void rejectsInvalidProperties() {
+        byte[] header = new byte[13];
+        header[0] = (byte) 225;
+        assertThrows(IOException.class, () -> decode(header));
+    }
+
+    private static byte[] decode(byte[] compressed) throws IOException {
+        try (InputStream in = new LzmaInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream in = LzmaInputStreamTest.class.getResourceAsStream("/lzma/" + name)) {
+            assertNotNull(in, "Missing test resource " + name);
+            return in.readAllBytes();
+        }
+    }
+
+}